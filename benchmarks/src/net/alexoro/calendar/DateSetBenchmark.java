@@ -0,0 +1,60 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enabled dates of a booking calendar: five years without 10k disabled days (some of them repeat).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DateSetBenchmark {
+
+    private static final int DISABLED_DAYS = 10000;
+
+    private LocalDate mStart;
+    private LocalDate mEnd;
+    private List<LocalDate> mDisabledDays;
+    private DateSet mDates;
+    private int mFirstDay;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        mStart = new LocalDate(2012, 1, 1);
+        mEnd = mStart.plusYears(5);
+        mDisabledDays = new ArrayList<LocalDate>(DISABLED_DAYS);
+        for (int i = 0; i < DISABLED_DAYS; i++) {
+            mDisabledDays.add(mStart.plusDays(random.nextInt(5 * 365)));
+        }
+        mDates = build();
+        mFirstDay = EpochDays.of(mStart);
+    }
+
+    @Benchmark
+    public DateSet build() {
+        return new DateSet.Builder()
+                .addRange(mStart, mEnd)
+                .removeDays(mDisabledDays)
+                .build();
+    }
+
+    /**
+     * A membership check for each cell of a month grid, as MonthCellsBuilder does
+     */
+    @Benchmark
+    @OperationsPerInvocation(42)
+    public void contains42(Blackhole bh) {
+        for (int i = 0; i < 42; i++) {
+            bh.consume(mDates.contains(mFirstDay + 400 + i));
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A push update of one event (the old instance is replaced by a new one) over 100k events,
+ * including the update of the visible month layout. setEvents is the full rebuild for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EventChangesBenchmark {
+
+    @Param({"100000"})
+    public int events;
+
+    private List<CalendarEvent> mEvents;
+    private MonthLayoutEngine mEngine;
+    private MonthLayout mLayout;
+    private Random mRandom;
+
+    @Setup
+    public void setup() {
+        mRandom = new Random(42);
+        LocalDate base = new LocalDate(2010, 1, 1);
+        mEvents = new ArrayList<CalendarEvent>(events);
+        for (int i = 0; i < events; i++) {
+            LocalDate start = base.plusDays(mRandom.nextInt(3600));
+            mEvents.add(new CalendarEvent(start, start, 0xFF000000 | mRandom.nextInt()));
+        }
+        mEngine = new MonthLayoutEngine();
+        mEngine.setEvents(mEvents);
+        mLayout = mEngine.createLayout(new LocalDate(2013, 6, 1));
+    }
+
+    @Benchmark
+    public long changeOneEvent() {
+        int i = mRandom.nextInt(mEvents.size());
+        CalendarEvent oldEvent = mEvents.get(i);
+        CalendarEvent newEvent = new CalendarEvent(oldEvent.getStart(), oldEvent.getEnd(), mRandom.nextInt());
+        mEvents.set(i, newEvent);
+        mEngine.changeEvents(Collections.singletonList(newEvent), Collections.singletonList(oldEvent));
+        MonthLayout updated = mEngine.updateLayout(mLayout);
+        long changed = mLayout.getChangedCells(updated);
+        mLayout = updated;
+        return changed;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public long setEvents() {
+        mEngine.setEvents(mEvents);
+        MonthLayout updated = mEngine.updateLayout(mLayout);
+        long changed = mLayout.getChangedCells(updated);
+        mLayout = updated;
+        return changed;
+    }
+
+}
@@ -0,0 +1,90 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events of a visible month taken from the interval index, 100k events spread over ten years.
+ * scanAll is the naive way (a scan of all events for the month) for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EventIndexBenchmark {
+
+    private static final int MONTHS = 120;
+
+    @Param({"100000"})
+    public int events;
+
+    private List<CalendarEvent> mEvents;
+    private EventIndex mIndex;
+    private EventSet mEventSet;
+    private EventIndex.Hits mHits;
+    private int[] mFirstDays;
+    private int mMonth;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDate base = new LocalDate(2010, 1, 1);
+        mEvents = new ArrayList<CalendarEvent>(events);
+        for (int i = 0; i < events; i++) {
+            LocalDate start = base.plusDays(random.nextInt(MONTHS * 30));
+            // mostly one day bookings, some of them are long
+            int length = random.nextInt(10) == 0 ? random.nextInt(60) : 0;
+            mEvents.add(new CalendarEvent(start, start.plusDays(length), 0xFF000000 | random.nextInt()));
+        }
+        mIndex = EventIndex.of(mEvents);
+        mEventSet = EventSet.of(mEvents);
+        mHits = new EventIndex.Hits();
+        mFirstDays = new int[MONTHS];
+        for (int i = 0; i < MONTHS; i++) {
+            LocalDate month = base.plusMonths(i);
+            mFirstDays[i] = new MonthDescriptor(month.getYear(), month.getMonthOfYear() - 1).getFirstEpochDay();
+        }
+        mMonth = 0;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 3)
+    public EventIndex buildIndex() {
+        return EventIndex.of(mEvents);
+    }
+
+    @Benchmark
+    public int queryMonth() {
+        mMonth = (mMonth + 1) % MONTHS;
+        mIndex.query(mFirstDays[mMonth], mFirstDays[mMonth] + 41, mHits);
+        return mHits.count;
+    }
+
+    @Benchmark
+    public MonthEvents monthEvents() {
+        mMonth = (mMonth + 1) % MONTHS;
+        return MonthEvents.create(mEventSet, mFirstDays[mMonth], 42);
+    }
+
+    @Benchmark
+    public void scanAll(Blackhole bh) {
+        mMonth = (mMonth + 1) % MONTHS;
+        int first = mFirstDays[mMonth];
+        int last = first + 41;
+        int count = 0;
+        for (int i = 0; i < mEvents.size(); i++) {
+            CalendarEvent event = mEvents.get(i);
+            if (event.first <= last && event.last >= first) {
+                count++;
+            }
+        }
+        bh.consume(count);
+    }
+
+}
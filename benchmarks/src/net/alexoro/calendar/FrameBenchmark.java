@@ -0,0 +1,98 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CalendarGridView.onDraw of a static month: the real MonthRenderer.drawMonth draws a layout of the engine
+ * into the JVM stub of android.graphics.Canvas (see stubs/). So clip tests, geometry lookups,
+ * cell decoding, atlas source rects, label metrics and the decorator of events are the code of the library.
+ * Rasterization is done by Android and is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FrameBenchmark {
+
+    private static final int CELL_WIDTH = 64;
+    private static final int CELL_HEIGHT = 58;
+
+    private MonthLayout mLayout;
+    private MonthRenderer mRenderer;
+    private MonthRenderer mCompactRenderer;
+    // clip bounds: whole grid and one damaged cell (press feedback)
+    private Canvas mFullCanvas;
+    private Canvas mCellCanvas;
+    private int mPressedIndex;
+
+    @Setup
+    public void setup() {
+        CalendarTheme theme = CalendarTheme.get(new Context(new Resources()));
+        LocalDate today = new LocalDate(2013, 6, 20);
+        MonthLayoutEngine engine = new MonthLayoutEngine(null);
+        engine.setFirstDayOfWeek(Calendar.MONDAY);
+        engine.setToday(today);
+        engine.setEnabledDates(DateSet.of(today.minusDays(10), today.plusDays(10)));
+        engine.setSelectedDates(DateSet.of(today.minusDays(3), today.plusDays(3)));
+        List<CalendarEvent> events = new ArrayList<CalendarEvent>();
+        for (int i = 0; i < 10; i++) {
+            events.add(new CalendarEvent(today.plusDays(i * 2 - 10), 0xff000000 | i * 0x1f1f1f));
+        }
+        engine.setEvents(events);
+
+        GridGeometry geometry = engine.getGeometry();
+        geometry.setUniform(CELL_WIDTH, CELL_HEIGHT, 2);
+        mLayout = engine.createLayout(today);
+        mRenderer = new MonthRenderer(geometry, theme);
+        mRenderer.setCellSize(CELL_WIDTH, CELL_HEIGHT);
+        // the same cells below the threshold of the level of detail
+        mCompactRenderer = new MonthRenderer(geometry, theme);
+        mCompactRenderer.setCellSize(CELL_WIDTH, CELL_HEIGHT);
+        mCompactRenderer.setCompactCellSize(CELL_WIDTH + 1);
+
+        mFullCanvas = new Canvas();
+        mFullCanvas.clipRect(0, 0, geometry.getWidth(), geometry.getHeight());
+        mCellCanvas = new Canvas();
+        mCellCanvas.clipRect(
+                geometry.getColumnLeft(3), geometry.getRowTop(2),
+                geometry.getColumnRight(3), geometry.getRowBottom(2));
+        mPressedIndex = 2 * geometry.getColumns() + 3;
+
+        // the atlas and label metrics are prepared by the first frame, as on a device
+        fullFrame();
+        compactFrame();
+    }
+
+    @Benchmark
+    public long fullFrame() {
+        mFullCanvas.resetCalls();
+        mRenderer.drawMonth(mFullCanvas, mLayout, 0, 0, -1);
+        return mFullCanvas.checksum;
+    }
+
+    @Benchmark
+    public long damagedCellFrame() {
+        mCellCanvas.resetCalls();
+        mRenderer.drawMonth(mCellCanvas, mLayout, 0, 0, mPressedIndex);
+        return mCellCanvas.checksum;
+    }
+
+    /**
+     * The same month drawn by the compact level of detail: flat rects instead of blits and text
+     */
+    @Benchmark
+    public long compactFrame() {
+        mFullCanvas.resetCalls();
+        mCompactRenderer.drawMonth(mFullCanvas, mLayout, 0, 0, -1);
+        return mFullCanvas.checksum;
+    }
+
+}
@@ -0,0 +1,54 @@
+package net.alexoro.calendar;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit-testing of touch coordinates, as CalendarGridView.getDayCellForCoordinates does.
+ * A batch of 1024 random points (gutters and outside points are included) per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class HitTestBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"false", "true"})
+    public boolean mirrored;
+
+    private GridGeometry mGeometry;
+    private float[] mX;
+    private float[] mY;
+    private Cell mCell;
+
+    @Setup
+    public void setup() {
+        mGeometry = new GridGeometry(6, 7);
+        mGeometry.setUniform(64, 58, 2);
+        mGeometry.setMirrored(mirrored);
+        mX = new float[POINTS];
+        mY = new float[POINTS];
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            mX[i] = random.nextFloat() * (mGeometry.getWidth() + 20) - 10;
+            mY[i] = random.nextFloat() * (mGeometry.getHeight() + 20) - 10;
+        }
+        mCell = new Cell(0, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int getCellAt() {
+        int hits = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (mGeometry.getCellAt(mX[i], mY[i], mCell)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+}
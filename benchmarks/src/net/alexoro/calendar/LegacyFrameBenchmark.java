@@ -0,0 +1,155 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of 1.0: CalendarGridView.onDraw of a static month as drawDay did it for each of 42 cells:
+ * a new state array, setState of the style drawable, the drawable rendered into the reusable background
+ * bitmap through a new Canvas, then the bitmap and the day number are drawn. The same month, theme, cell size
+ * and selection as FrameBenchmark.fullFrame, so the scores are directly comparable. Unlike the blits
+ * of FrameBenchmark, drawableToBitmap fills the pixels of the stub bitmap, as Android did it for each cell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LegacyFrameBenchmark {
+
+    private static final int WEEKS_TO_SHOW = 6;
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int CELL_WIDTH = 64;
+    private static final int CELL_HEIGHT = 58;
+    private static final int CELL_SPACING = 2;
+
+    private LegacyMonthGridBenchmark.LegacyDayCell[][] mMonth;
+    private Map<Integer, String> mMapDayToString;
+    private Bitmap mBackground;
+    private Paint mCellBackgroundPaint;
+    private Paint mCellTextPaint;
+    private Rect mArea;
+    private Canvas mCanvas;
+
+    @Setup
+    public void setup() {
+        CalendarTheme theme = CalendarTheme.get(new Context(new Resources()));
+        DayStyle[] styles = theme.getDayStyles();
+        LocalDate today = new LocalDate(2013, 6, 20);
+        LegacyMonthGridBenchmark.LegacyGridView gridView = new LegacyMonthGridBenchmark.LegacyGridView(today);
+        copyStyle(styles[DayCellDescription.STYLE_PREVIOUS_MONTH], gridView.previousMonthDayStyle);
+        copyStyle(styles[DayCellDescription.STYLE_THIS_MONTH], gridView.thisMonthDayStyle);
+        copyStyle(styles[DayCellDescription.STYLE_NEXT_MONTH], gridView.nextMonthDayStyle);
+        copyStyle(styles[DayCellDescription.STYLE_TODAY], gridView.todayDayStyle);
+        gridView.enabledRange = new LocalDate[] { today.minusDays(10), today.plusDays(10) };
+        gridView.selectedRange = new LocalDate[] { today.minusDays(3), today.plusDays(3) };
+        mMonth = gridView.createDefaultDayCellDescriptions(
+                new LegacyMonthGridBenchmark.LegacyMonthDescriptor(2013, 5, Calendar.MONDAY));
+
+        mMapDayToString = new HashMap<Integer, String>();
+        for (int i = 1; i < 32; i++) {
+            mMapDayToString.put(i, String.valueOf(i));
+        }
+        mBackground = Bitmap.createBitmap(CELL_WIDTH, CELL_HEIGHT, Bitmap.Config.ARGB_8888);
+        mCellBackgroundPaint = new Paint();
+        mCellTextPaint = new Paint();
+        mCellTextPaint.setAntiAlias(true);
+        mCellTextPaint.setStyle(Paint.Style.FILL);
+        mArea = new Rect();
+        mCanvas = new Canvas();
+    }
+
+    private static void copyStyle(DayStyle from, DayStyle to) {
+        to.index = from.index;
+        to.name = from.name;
+        to.textSize = from.textSize;
+        to.textColor = from.textColor;
+        to.drawable = from.drawable;
+    }
+
+    /**
+     * Pair of FrameBenchmark.fullFrame
+     */
+    @Benchmark
+    public long fullFrame() {
+        mCanvas.resetCalls();
+        for (int row = 0; row < WEEKS_TO_SHOW; row++) {
+            for (int col = 0; col < DAYS_IN_WEEK; col++) {
+                mArea.set(
+                        col * CELL_WIDTH + col * CELL_SPACING,
+                        row * CELL_HEIGHT + row * CELL_SPACING,
+                        col * CELL_WIDTH + col * CELL_SPACING + CELL_WIDTH,
+                        row * CELL_HEIGHT + row * CELL_SPACING + CELL_HEIGHT);
+                drawDay(mCanvas, mMonth[row][col]);
+            }
+        }
+        return mCanvas.checksum;
+    }
+
+
+    //region drawDay of 1.0
+
+    void drawDay(Canvas canvas, LegacyMonthGridBenchmark.LegacyDayCell d) {
+        int[] states = getStatesAsSet(d.isEnabled, d.isSelected, d.isPressed);
+
+        d.dayStyle.drawable.setState(states);
+        drawableToBitmap(d.dayStyle.drawable, mBackground);
+
+        canvas.drawBitmap(mBackground, mArea.left, mArea.top, mCellBackgroundPaint);
+
+        String value = mMapDayToString.get(d.day);
+        mCellTextPaint.setTextSize(d.dayStyle.textSize);
+        mCellTextPaint.setColor(getTextColorForState(d.dayStyle.textColor, states));
+        float measuredTextWidth = mCellTextPaint.measureText(value);
+        canvas.drawText(
+                value,
+                mArea.centerX() - measuredTextWidth/2,
+                mArea.centerY() + d.dayStyle.textSize/2 - 2,
+                mCellTextPaint);
+    }
+
+    int[] getStatesAsSet(boolean isEnabled, boolean isSelected, boolean isPressed) {
+        int size = 0;
+        if (isPressed) size++;
+        if (isSelected) size++;
+        if (isEnabled) size++;
+        int[] r = new int[size];
+        int offset = 0;
+
+        if (isPressed) {
+            r[offset++] = android.R.attr.state_pressed;
+        }
+        if (isSelected) {
+            r[offset++] = android.R.attr.state_selected;
+        }
+        if (isEnabled) {
+            r[offset] = android.R.attr.state_enabled;
+        }
+
+        return r;
+    }
+
+    int getTextColorForState(ColorStateList list, int[] states) {
+        return list.getColorForState(states, list.getDefaultColor());
+    }
+
+    void drawableToBitmap(Drawable drawable, Bitmap target) {
+        Canvas canvas = new Canvas(target);
+        drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+        drawable.draw(canvas);
+    }
+
+    //endregion
+
+}
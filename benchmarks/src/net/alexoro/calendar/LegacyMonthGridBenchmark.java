@@ -0,0 +1,287 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of 1.0: the month grid as DayCellDescription[6][7] objects, built and updated as
+ * CalendarGridView.createDefaultDayCellDescriptions / updateEnabledSelectedMonthParams did it,
+ * over a mutable MonthDisplayHelper and the boxing compareToDate. The same months, dates and selections
+ * as MonthGridBenchmark and UpdateStatesBenchmark, so the scores are directly comparable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LegacyMonthGridBenchmark {
+
+    private static final int WEEKS_TO_SHOW = 6;
+    private static final int DAYS_IN_WEEK = 7;
+
+    private LegacyGridView mGridView;
+    private LegacyGridView mUpdatedGridView;
+    private LocalDate[][] mSelectedRanges;
+    private int mMonth;
+    private int mCurrent;
+
+    @Setup
+    public void setup() {
+        LocalDate today = new LocalDate(2013, 6, 20);
+        mGridView = new LegacyGridView(today);
+        mGridView.enabledRange = new LocalDate[] { today.minusDays(100), today.plusDays(100) };
+        mGridView.selectedRange = new LocalDate[] { today.minusDays(3), today.plusDays(3) };
+        mMonth = 0;
+
+        mSelectedRanges = new LocalDate[][] {
+                { today.minusDays(3), today.plusDays(3) },
+                { today.plusDays(5), today.plusDays(12) }
+        };
+        mUpdatedGridView = new LegacyGridView(today);
+        mUpdatedGridView.enabledRange = new LocalDate[] { today.minusDays(10), today.plusDays(10) };
+        mUpdatedGridView.selectedRange = mSelectedRanges[0];
+        mUpdatedGridView.currentMonthDescriptor = new LegacyMonthDescriptor(2013, 5, Calendar.MONDAY);
+        mUpdatedGridView.currentMonth =
+                mUpdatedGridView.createDefaultDayCellDescriptions(mUpdatedGridView.currentMonthDescriptor);
+        mCurrent = 0;
+    }
+
+    /**
+     * Pair of MonthGridBenchmark.descriptorAndCells
+     */
+    @Benchmark
+    public LegacyDayCell[][] descriptorAndCells() {
+        mMonth = (mMonth + 1) % 12;
+        LegacyMonthDescriptor md = new LegacyMonthDescriptor(2013, mMonth, Calendar.MONDAY);
+        return mGridView.createDefaultDayCellDescriptions(md);
+    }
+
+    /**
+     * Pair of UpdateStatesBenchmark.updateStates
+     */
+    @Benchmark
+    public LegacyDayCell[][] updateStates() {
+        mCurrent ^= 1;
+        mUpdatedGridView.selectedRange = mSelectedRanges[mCurrent];
+        mUpdatedGridView.updateEnabledSelectedMonthParams();
+        return mUpdatedGridView.currentMonth;
+    }
+
+
+    //region The model of 1.0
+
+    /**
+     * DayCellDescription of 1.0: one object per cell
+     */
+    static class LegacyDayCell {
+        public int year;
+        public int month;
+        public int day;
+        boolean isEnabled;
+        boolean isSelected;
+        boolean isPressed;
+        public DayStyle dayStyle;
+    }
+
+    /**
+     * The grid part of CalendarGridView of 1.0. Ranges are {first, second} instead of android.util.Pair.
+     */
+    static class LegacyGridView {
+
+        final DayStyle previousMonthDayStyle = new DayStyle();
+        final DayStyle thisMonthDayStyle = new DayStyle();
+        final DayStyle nextMonthDayStyle = new DayStyle();
+        final DayStyle todayDayStyle = new DayStyle();
+        final LocalDate today;
+        LocalDate[] enabledRange;
+        LocalDate[] selectedRange;
+        Cell currentlyPressedCell;
+        LegacyMonthDescriptor currentMonthDescriptor;
+        LegacyDayCell[][] currentMonth;
+
+        LegacyGridView(LocalDate today) {
+            this.today = today;
+        }
+
+        DayStyle[] getStyles() {
+            return new DayStyle[] { previousMonthDayStyle, thisMonthDayStyle, nextMonthDayStyle, todayDayStyle };
+        }
+
+        boolean isDayEnabled(LegacyMonthDescriptor md, int row, int column) {
+            return enabledRange == null
+                    || md.compareToDate(row, column, enabledRange[0]) >= 0
+                    && md.compareToDate(row, column, enabledRange[1]) <= 0;
+        }
+
+        boolean isDaySelected(LegacyMonthDescriptor md, int row, int column) {
+            return selectedRange != null
+                    && md.compareToDate(row, column, selectedRange[0]) >= 0
+                    && md.compareToDate(row, column, selectedRange[1]) <= 0;
+        }
+
+        boolean isDayPressed(int row, int column) {
+            return currentlyPressedCell != null
+                    && row == currentlyPressedCell.row
+                    && column == currentlyPressedCell.column;
+        }
+
+        LegacyDayCell[][] createDefaultDayCellDescriptions(LegacyMonthDescriptor mdh) {
+            LegacyDayCell[][] r = new LegacyDayCell[WEEKS_TO_SHOW][DAYS_IN_WEEK];
+
+            LegacyDayCell c;
+            int day;
+            for (int row = 0; row < WEEKS_TO_SHOW; row++) {
+                for (int col = 0; col < DAYS_IN_WEEK; col++) {
+                    day = mdh.getDayAt(row, col);
+                    c = new LegacyDayCell();
+                    if (day < 32 && row < 1 && day > 10) { // it is previous month
+                        mdh.previousMonth();
+                        c.year = mdh.getYear();
+                        c.month = mdh.getMonth();
+                        c.day = day;
+                        c.dayStyle = previousMonthDayStyle;
+                        mdh.nextMonth();
+                    } else if (day < 10 && row > 3) { // it is next month
+                        mdh.nextMonth();
+                        c.year = mdh.getYear();
+                        c.month = mdh.getMonth();
+                        c.day = day;
+                        c.dayStyle = nextMonthDayStyle;
+                        mdh.previousMonth();
+                    } else { // it is this month
+                        c.year = mdh.getYear();
+                        c.month = mdh.getMonth();
+                        c.day = day;
+                        if (mdh.compareToDate(row, col, today) == 0) {
+                            c.dayStyle = todayDayStyle;
+                        } else {
+                            c.dayStyle = thisMonthDayStyle;
+                        }
+                    }
+                    c.isEnabled = isDayEnabled(mdh, row, col);
+                    c.isSelected = isDaySelected(mdh, row, col);
+                    c.isPressed = isDayPressed(row, col);
+
+                    r[row][col] = c;
+                }
+            }
+
+            return r;
+        }
+
+        void updateEnabledSelectedMonthParams() {
+            for (int row = 0; row < WEEKS_TO_SHOW; row++) {
+                for (int col = 0; col < DAYS_IN_WEEK; col++) {
+                    currentMonth[row][col].isEnabled = isDayEnabled(currentMonthDescriptor, row, col);
+                    currentMonth[row][col].isSelected = isDaySelected(currentMonthDescriptor, row, col);
+                    currentMonth[row][col].isPressed = isDayPressed(row, col);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * MonthDescriptor of 1.0 together with the android.util.MonthDisplayHelper it extended:
+     * a mutable Calendar that is moved back and forth to resolve the days of adjacent months.
+     */
+    static class LegacyMonthDescriptor {
+
+        private final int mWeekStartDay;
+        private final Calendar mCalendar;
+        private int mNumDaysInMonth;
+        private int mNumDaysInPrevMonth;
+        private int mOffset;
+
+        LegacyMonthDescriptor(int year, int month, int weekStartDay) {
+            mWeekStartDay = weekStartDay;
+            mCalendar = Calendar.getInstance();
+            mCalendar.set(Calendar.YEAR, year);
+            mCalendar.set(Calendar.MONTH, month);
+            mCalendar.set(Calendar.DAY_OF_MONTH, 1);
+            mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+            mCalendar.set(Calendar.MINUTE, 0);
+            mCalendar.set(Calendar.SECOND, 0);
+            mCalendar.getTimeInMillis();
+            recalculate();
+        }
+
+        int getYear() {
+            return mCalendar.get(Calendar.YEAR);
+        }
+
+        int getMonth() {
+            return mCalendar.get(Calendar.MONTH);
+        }
+
+        void previousMonth() {
+            mCalendar.add(Calendar.MONTH, -1);
+            recalculate();
+        }
+
+        void nextMonth() {
+            mCalendar.add(Calendar.MONTH, 1);
+            recalculate();
+        }
+
+        int getDayAt(int row, int column) {
+            if (row == 0 && column < mOffset) {
+                return mNumDaysInPrevMonth + column - mOffset + 1;
+            }
+            int day = 7 * row + column - mOffset + 1;
+            return day > mNumDaysInMonth ? day - mNumDaysInMonth : day;
+        }
+
+        boolean isWithinCurrentMonth(int row, int column) {
+            if (row < 0 || column < 0 || row > 5 || column > 6) {
+                return false;
+            }
+            if (row == 0 && column < mOffset) {
+                return false;
+            }
+            int day = 7 * row + column - mOffset + 1;
+            return day <= mNumDaysInMonth;
+        }
+
+        int compareToDate(int row, int column, LocalDate date) {
+            int year = getYear();
+            int month = getMonth();
+            int day = getDayAt(row, column);
+
+            if (!isWithinCurrentMonth(row, column)) {
+                if (row < 2) {
+                    previousMonth();
+                    year = getYear();
+                    month = getMonth();
+                    nextMonth();
+                } else {
+                    nextMonth();
+                    year = getYear();
+                    month = getMonth();
+                    previousMonth();
+                }
+            }
+
+            Integer source = year * 10000 + (month + 1) * 100 + day;
+            Integer target = date.getYear() * 10000 + date.getMonthOfYear() * 100 + date.getDayOfMonth();
+            return source.compareTo(target);
+        }
+
+        private void recalculate() {
+            mNumDaysInMonth = mCalendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+            mCalendar.add(Calendar.MONTH, -1);
+            mNumDaysInPrevMonth = mCalendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+            mCalendar.add(Calendar.MONTH, 1);
+            int offset = mCalendar.get(Calendar.DAY_OF_WEEK) - mWeekStartDay;
+            if (offset < 0) {
+                offset += 7;
+            }
+            mOffset = offset;
+        }
+
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,45 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-cell queries of MonthDescriptor over the whole grid (42 cells per invocation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MonthDescriptorBenchmark {
+
+    private MonthDescriptor mDescriptor;
+    private LocalDate mDate;
+
+    @Setup
+    public void setup() {
+        mDescriptor = new MonthDescriptor(2013, 5, Calendar.MONDAY);
+        mDate = new LocalDate(2013, 6, 20);
+    }
+
+    @Benchmark
+    public void compareToDate(Blackhole bh) {
+        for (int row = 0; row < mDescriptor.getRowsCount(); row++) {
+            for (int col = 0; col < mDescriptor.getColumnsCount(); col++) {
+                bh.consume(mDescriptor.compareToDate(row, col, mDate));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getLocalDate(Blackhole bh) {
+        for (int row = 0; row < mDescriptor.getRowsCount(); row++) {
+            for (int col = 0; col < mDescriptor.getColumnsCount(); col++) {
+                bh.consume(mDescriptor.getLocalDate(row, col));
+            }
+        }
+    }
+
+}
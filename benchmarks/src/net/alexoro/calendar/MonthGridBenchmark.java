@@ -0,0 +1,77 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of a month grid: descriptor and packed cells, and whole layouts as MonthLayoutEngine.createLayout builds them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MonthGridBenchmark {
+
+    private DateSet mEnabledDates;
+    private DateSet mSelectedDates;
+    private int mTodayEpochDay;
+    private int mMonth;
+    private MonthLayoutEngine mEngine;
+    private MonthLayoutEngine mCachedEngine;
+    private LocalDate[] mMonths;
+
+    @Setup
+    public void setup() {
+        mTodayEpochDay = EpochDays.of(2013, 6, 20);
+        mEnabledDates = DateSet.ofEpochDays(mTodayEpochDay - 100, mTodayEpochDay + 100);
+        mSelectedDates = DateSet.ofEpochDays(mTodayEpochDay - 3, mTodayEpochDay + 3);
+        mMonth = 0;
+
+        mEngine = new MonthLayoutEngine(null);
+        mCachedEngine = new MonthLayoutEngine(new MonthLayoutCache(MonthLayoutCache.DEFAULT_MAX_SIZE));
+        for (MonthLayoutEngine engine : new MonthLayoutEngine[] { mEngine, mCachedEngine }) {
+            engine.setFirstDayOfWeek(Calendar.MONDAY);
+            engine.setToday(EpochDays.toLocalDate(mTodayEpochDay));
+            engine.setEnabledDates(mEnabledDates);
+            engine.setSelectedDates(mSelectedDates);
+        }
+        mMonths = new LocalDate[12];
+        for (int i = 0; i < mMonths.length; i++) {
+            mMonths[i] = new LocalDate(2013, i + 1, 1);
+        }
+    }
+
+    @Benchmark
+    public MonthDescriptor descriptor() {
+        mMonth = (mMonth + 1) % 12;
+        return new MonthDescriptor(2013, mMonth, Calendar.MONDAY);
+    }
+
+    @Benchmark
+    public int[] descriptorAndCells() {
+        mMonth = (mMonth + 1) % 12;
+        MonthDescriptor md = new MonthDescriptor(2013, mMonth, Calendar.MONDAY);
+        return MonthCellsBuilder.build(md, mEnabledDates, mSelectedDates, mTodayEpochDay);
+    }
+
+    /**
+     * Layout with the enabled/selected states, built from scratch
+     */
+    @Benchmark
+    public MonthLayout engineLayout() {
+        mMonth = (mMonth + 1) % 12;
+        return mEngine.createLayout(mMonths[mMonth]);
+    }
+
+    /**
+     * The same, but the base layout comes from the cache and only the states are applied
+     */
+    @Benchmark
+    public MonthLayout engineLayoutCached() {
+        mMonth = (mMonth + 1) % 12;
+        return mCachedEngine.createLayout(mMonths[mMonth]);
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.alexoro.calendar;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recalculation of enabled/selected states of packed cells, as MonthLayoutEngine.updateLayout does it for a month on screen.
+ * Two selections are switched on each invocation, so some cells are really changed every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UpdateStatesBenchmark {
+
+    private MonthDescriptor mDescriptor;
+    private int[] mCells;
+    private DateSet mEnabledDates;
+    private DateSet[] mSelectedRanges;
+    private int mCurrent;
+
+    @Setup
+    public void setup() {
+        mDescriptor = new MonthDescriptor(2013, 5, Calendar.MONDAY);
+        int today = EpochDays.of(2013, 6, 20);
+        mEnabledDates = DateSet.ofEpochDays(today - 10, today + 10);
+        mSelectedRanges = new DateSet[] {
+                DateSet.ofEpochDays(today - 3, today + 3),
+                DateSet.ofEpochDays(today + 5, today + 12)
+        };
+        mCells = MonthCellsBuilder.build(mDescriptor, mEnabledDates, mSelectedRanges[0], today);
+        mCurrent = 0;
+    }
+
+    @Benchmark
+    public long updateStates() {
+        mCurrent ^= 1;
+        return MonthCellsBuilder.updateStates(mCells, mDescriptor, mEnabledDates, mSelectedRanges[mCurrent], -1);
+    }
+
+    @Benchmark
+    public long updateStatesUnchanged() {
+        return MonthCellsBuilder.updateStates(mCells, mDescriptor, mEnabledDates, mSelectedRanges[mCurrent], -1);
+    }
+
+}
@@ -0,0 +1,14 @@
+package android;
+
+/**
+ * JVM stub: only the attributes used by the library, with the values of the platform
+ */
+public final class R {
+
+    public static final class attr {
+        public static final int state_enabled = 16842910;
+        public static final int state_selected = 16842913;
+        public static final int state_pressed = 16842919;
+    }
+
+}
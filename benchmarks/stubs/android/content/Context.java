@@ -0,0 +1,26 @@
+package android.content;
+
+import android.content.res.Resources;
+
+/**
+ * JVM stub: resources and a theme, as CalendarTheme.get needs
+ */
+public class Context {
+
+    private final Resources mResources;
+    private final Resources.Theme mTheme;
+
+    public Context(Resources resources) {
+        mResources = resources;
+        mTheme = resources.newTheme();
+    }
+
+    public Resources getResources() {
+        return mResources;
+    }
+
+    public Resources.Theme getTheme() {
+        return mTheme;
+    }
+
+}
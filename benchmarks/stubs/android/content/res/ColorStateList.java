@@ -0,0 +1,31 @@
+package android.content.res;
+
+import android.graphics.drawable.StateListDrawable;
+
+/**
+ * JVM stub: the first matching state spec wins, as on the platform
+ */
+public class ColorStateList {
+
+    private final int[][] mStateSpecs;
+    private final int[] mColors;
+
+    public ColorStateList(int[][] states, int[] colors) {
+        mStateSpecs = states;
+        mColors = colors;
+    }
+
+    public int getColorForState(int[] stateSet, int defaultColor) {
+        for (int i = 0; i < mStateSpecs.length; i++) {
+            if (StateListDrawable.stateSetMatches(mStateSpecs[i], stateSet)) {
+                return mColors[i];
+            }
+        }
+        return defaultColor;
+    }
+
+    public int getDefaultColor() {
+        return mColors[0];
+    }
+
+}
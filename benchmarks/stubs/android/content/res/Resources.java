@@ -0,0 +1,42 @@
+package android.content.res;
+
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
+import android.util.DisplayMetrics;
+
+/**
+ * JVM stub: every drawable is a state list of flat colors and every color is a state list,
+ * with the states of the drawables of the library (nac__bg_*, nac__* colors)
+ */
+public class Resources {
+
+    public final class Theme {
+    }
+
+    private final DisplayMetrics mDisplayMetrics = new DisplayMetrics();
+
+    public DisplayMetrics getDisplayMetrics() {
+        return mDisplayMetrics;
+    }
+
+    public Theme newTheme() {
+        return new Theme();
+    }
+
+    public Drawable getDrawable(int id) {
+        StateListDrawable r = new StateListDrawable();
+        r.addState(new int[] { android.R.attr.state_pressed }, new ColorDrawable(0xffffa500));
+        r.addState(new int[] { android.R.attr.state_selected }, new ColorDrawable(0xff3399ff));
+        r.addState(new int[] { -android.R.attr.state_enabled }, new ColorDrawable(0xffdddddd));
+        r.addState(new int[0], new ColorDrawable(0xff000000 | id * 0x10101));
+        return r;
+    }
+
+    public ColorStateList getColorStateList(int id) {
+        return new ColorStateList(
+                new int[][] { { -android.R.attr.state_enabled }, {} },
+                new int[] { 0xff999999, 0xff000000 | id });
+    }
+
+}
@@ -0,0 +1,55 @@
+package android.graphics;
+
+/**
+ * JVM stub: pixels are kept as ARGB ints, so what is drawn into a bitmap can be read back
+ */
+public final class Bitmap {
+
+    public enum Config { ALPHA_8, RGB_565, ARGB_4444, ARGB_8888 }
+
+    private final int mWidth;
+    private final int mHeight;
+    private int[] mPixels;
+
+    private Bitmap(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mPixels = new int[width * height];
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0");
+        }
+        return new Bitmap(width, height);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getPixel(int x, int y) {
+        return mPixels[y * mWidth + x];
+    }
+
+    public void setPixel(int x, int y, int color) {
+        mPixels[y * mWidth + x] = color;
+    }
+
+    public void eraseColor(int color) {
+        java.util.Arrays.fill(mPixels, color);
+    }
+
+    public void recycle() {
+        mPixels = null;
+    }
+
+    public boolean isRecycled() {
+        return mPixels == null;
+    }
+
+}
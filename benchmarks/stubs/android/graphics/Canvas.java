@@ -0,0 +1,106 @@
+package android.graphics;
+
+/**
+ * JVM stub of the drawing calls made by the library.
+ * A canvas of a bitmap fills rects into its pixels, so pre-rendered backgrounds can be read back.
+ * Every call is counted and folded into a checksum, so the JIT can not drop the work of a frame.
+ * Rasterization is not modelled, only the calls are.
+ */
+public class Canvas {
+
+    // stub only: statistics of the calls
+    public int bitmapCalls;
+    public int textCalls;
+    public int rectCalls;
+    public int circleCalls;
+    public long checksum;
+
+    private final Bitmap mBitmap;
+    private final Rect mClip;
+
+    public Canvas() {
+        mBitmap = null;
+        mClip = new Rect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public Canvas(Bitmap bitmap) {
+        mBitmap = bitmap;
+        mClip = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * Stub only: clears the statistics of calls
+     */
+    public void resetCalls() {
+        bitmapCalls = 0;
+        textCalls = 0;
+        rectCalls = 0;
+        circleCalls = 0;
+        checksum = 0;
+    }
+
+    public int getWidth() {
+        return mBitmap != null ? mBitmap.getWidth() : 0;
+    }
+
+    public int getHeight() {
+        return mBitmap != null ? mBitmap.getHeight() : 0;
+    }
+
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        if (!mClip.intersect(left, top, right, bottom)) {
+            mClip.set(0, 0, 0, 0);
+        }
+        return !mClip.isEmpty();
+    }
+
+    public boolean clipRect(Rect rect) {
+        return clipRect(rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    public boolean getClipBounds(Rect bounds) {
+        bounds.set(mClip);
+        return !mClip.isEmpty();
+    }
+
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        bitmapCalls++;
+        checksum = checksum * 31 + (int) left * 13 + (int) top * 17 + bitmap.getWidth() * 19 + bitmap.getHeight() * 23;
+    }
+
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        bitmapCalls++;
+        checksum = checksum * 31 + src.left + src.top * 7 + dst.left * 13 + dst.top * 17 + dst.right * 19 + dst.bottom * 23;
+    }
+
+    public void drawText(String text, float x, float y, Paint paint) {
+        textCalls++;
+        checksum = checksum * 31 + text.length() + Float.floatToIntBits(x) + Float.floatToIntBits(y) + paint.getColor();
+    }
+
+    public void drawRect(Rect rect, Paint paint) {
+        drawRect(rect.left, rect.top, rect.right, rect.bottom, paint);
+    }
+
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        rectCalls++;
+        checksum = checksum * 31 + (int) left + (int) top * 7 + (int) right * 13 + (int) bottom * 17 + paint.getColor();
+        if (mBitmap != null) {
+            int l = Math.max((int) left, mClip.left);
+            int t = Math.max((int) top, mClip.top);
+            int r = Math.min((int) right, mClip.right);
+            int b = Math.min((int) bottom, mClip.bottom);
+            for (int y = t; y < b; y++) {
+                for (int x = l; x < r; x++) {
+                    mBitmap.setPixel(x, y, paint.getColor());
+                }
+            }
+        }
+    }
+
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        circleCalls++;
+        checksum = checksum * 31 + Float.floatToIntBits(cx) + Float.floatToIntBits(cy) + paint.getColor();
+    }
+
+}
@@ -0,0 +1,115 @@
+package android.graphics;
+
+/**
+ * JVM stub: text is measured by a fixed advance per character and fixed font metrics,
+ * it is enough for the layout of labels, not for their look
+ */
+public class Paint {
+
+    public enum Style { FILL, STROKE, FILL_AND_STROKE }
+
+    public enum Align { LEFT, CENTER, RIGHT }
+
+    public static class FontMetrics {
+        public float top;
+        public float ascent;
+        public float descent;
+        public float bottom;
+        public float leading;
+    }
+
+    public static class FontMetricsInt {
+        public int top;
+        public int ascent;
+        public int descent;
+        public int bottom;
+        public int leading;
+    }
+
+    private int mColor;
+    private float mTextSize;
+    private boolean mAntiAlias;
+    private Style mStyle;
+    private Align mTextAlign;
+    private Typeface mTypeface;
+
+    public Paint() {
+        mColor = 0xff000000;
+        mTextSize = 12f;
+        mStyle = Style.FILL;
+        mTextAlign = Align.LEFT;
+    }
+
+    public void setAntiAlias(boolean aa) {
+        mAntiAlias = aa;
+    }
+
+    public boolean isAntiAlias() {
+        return mAntiAlias;
+    }
+
+    public void setStyle(Style style) {
+        mStyle = style;
+    }
+
+    public Style getStyle() {
+        return mStyle;
+    }
+
+    public void setColor(int color) {
+        mColor = color;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public void setTextSize(float textSize) {
+        mTextSize = textSize;
+    }
+
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    public void setTextAlign(Align align) {
+        mTextAlign = align;
+    }
+
+    public Align getTextAlign() {
+        return mTextAlign;
+    }
+
+    public Typeface setTypeface(Typeface typeface) {
+        mTypeface = typeface;
+        return typeface;
+    }
+
+    public Typeface getTypeface() {
+        return mTypeface;
+    }
+
+    public float measureText(String text) {
+        return text.length() * mTextSize * 0.55f;
+    }
+
+    public FontMetrics getFontMetrics() {
+        FontMetrics r = new FontMetrics();
+        r.top = -mTextSize * 1.05f;
+        r.ascent = -mTextSize * 0.93f;
+        r.descent = mTextSize * 0.24f;
+        r.bottom = mTextSize * 0.27f;
+        return r;
+    }
+
+    public FontMetricsInt getFontMetricsInt() {
+        FontMetrics fm = getFontMetrics();
+        FontMetricsInt r = new FontMetricsInt();
+        r.top = (int) Math.floor(fm.top);
+        r.ascent = Math.round(fm.ascent);
+        r.descent = Math.round(fm.descent);
+        r.bottom = (int) Math.ceil(fm.bottom);
+        return r;
+    }
+
+}
@@ -0,0 +1,11 @@
+package android.graphics;
+
+/**
+ * JVM stub: typefaces are compared by reference only
+ */
+public class Typeface {
+
+    public static final Typeface DEFAULT = new Typeface();
+    public static final Typeface DEFAULT_BOLD = new Typeface();
+
+}
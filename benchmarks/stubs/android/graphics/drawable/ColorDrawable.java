@@ -0,0 +1,27 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * JVM stub: fills its bounds by the color
+ */
+public class ColorDrawable extends Drawable {
+
+    private final Paint mPaint;
+
+    public ColorDrawable(int color) {
+        mPaint = new Paint();
+        mPaint.setColor(color);
+    }
+
+    public int getColor() {
+        return mPaint.getColor();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        canvas.drawRect(getBounds(), mPaint);
+    }
+
+}
@@ -0,0 +1,51 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * JVM stub: bounds and states, as the platform class keeps them
+ */
+public abstract class Drawable {
+
+    private static final int[] EMPTY_STATE = new int[0];
+
+    private final Rect mBounds = new Rect();
+    private int[] mState = EMPTY_STATE;
+
+    public void setBounds(int left, int top, int right, int bottom) {
+        mBounds.set(left, top, right, bottom);
+    }
+
+    public void setBounds(Rect bounds) {
+        mBounds.set(bounds);
+    }
+
+    public final Rect getBounds() {
+        return mBounds;
+    }
+
+    public boolean setState(int[] stateSet) {
+        mState = stateSet;
+        return onStateChange(stateSet);
+    }
+
+    public int[] getState() {
+        return mState;
+    }
+
+    protected boolean onStateChange(int[] state) {
+        return false;
+    }
+
+    public int getIntrinsicWidth() {
+        return -1;
+    }
+
+    public int getIntrinsicHeight() {
+        return -1;
+    }
+
+    public abstract void draw(Canvas canvas);
+
+}
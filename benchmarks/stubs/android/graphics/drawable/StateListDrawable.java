@@ -0,0 +1,65 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stub: the first state spec matching the current states selects the drawable, as on the platform
+ */
+public class StateListDrawable extends Drawable {
+
+    private final List<int[]> mStateSpecs = new ArrayList<int[]>();
+    private final List<Drawable> mDrawables = new ArrayList<Drawable>();
+    private Drawable mCurrent;
+
+    public void addState(int[] stateSet, Drawable drawable) {
+        mStateSpecs.add(stateSet);
+        mDrawables.add(drawable);
+        onStateChange(getState());
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        Drawable previous = mCurrent;
+        mCurrent = null;
+        for (int i = 0; i < mStateSpecs.size(); i++) {
+            if (stateSetMatches(mStateSpecs.get(i), state)) {
+                mCurrent = mDrawables.get(i);
+                break;
+            }
+        }
+        return mCurrent != previous;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mCurrent != null) {
+            mCurrent.setBounds(getBounds());
+            mCurrent.draw(canvas);
+        }
+    }
+
+    /**
+     * Positive ids of the spec must be in the states, negative ids must not
+     */
+    public static boolean stateSetMatches(int[] spec, int[] states) {
+        for (int id : spec) {
+            boolean required = id > 0;
+            int state = required ? id : -id;
+            boolean found = false;
+            for (int s : states) {
+                if (s == state) {
+                    found = true;
+                    break;
+                }
+            }
+            if (found != required) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,11 @@
+package android.util;
+
+/**
+ * JVM stub: a medium density screen, sizes in dp and sp are px
+ */
+public class DisplayMetrics {
+
+    public float density = 1f;
+    public float scaledDensity = 1f;
+
+}
@@ -0,0 +1,25 @@
+package net.alexoro.calendar;
+
+/**
+ * JVM stub of the resources of the library used by MonthRenderer and CalendarTheme,
+ * on a device R is generated by aapt
+ */
+public final class R {
+
+    public static final class drawable {
+        public static final int nac__arrow_left = 0x7f020001;
+        public static final int nac__arrow_right = 0x7f020002;
+        public static final int nac__bg_next_month = 0x7f020003;
+        public static final int nac__bg_previous_month = 0x7f020004;
+        public static final int nac__bg_this_month = 0x7f020005;
+        public static final int nac__bg_today = 0x7f020006;
+    }
+
+    public static final class color {
+        public static final int nac__next_month = 0x7f030001;
+        public static final int nac__previous_month = 0x7f030002;
+        public static final int nac__this_month = 0x7f030003;
+        public static final int nac__today = 0x7f030004;
+    }
+
+}
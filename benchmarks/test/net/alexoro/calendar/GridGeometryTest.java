@@ -0,0 +1,207 @@
+package net.alexoro.calendar;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hit-testing of GridGeometry against a linear scan over the drawn bounds of cells,
+ * so what is hit is always what is drawn: uniform, non-uniform, fitted and mirrored grids.
+ * Uniform grids are also checked against the while-loops of 1.0 (see baselineCellAt),
+ * the only layout 1.0 had, so the hit cells did not change.
+ */
+public class GridGeometryTest {
+
+    private static final int GRIDS = 500;
+
+    @Test
+    public void mirroredEdges() {
+        GridGeometry g = new GridGeometry(6, 7);
+        g.setUniform(40, 40, 2);
+        g.setMirrored(true);
+        assertEquals(6, g.getColumnAt(0));
+        assertEquals(6, g.getColumnAt(39.9f));
+        assertEquals(-1, g.getColumnAt(40));
+        assertEquals(-1, g.getColumnAt(41));
+        assertEquals(5, g.getColumnAt(42));
+        assertEquals(0, g.getColumnAt(g.getWidth() - 1));
+        assertEquals(-1, g.getColumnAt(g.getWidth()));
+    }
+
+    @Test
+    public void uniform() {
+        Random random = new Random(1);
+        for (int i = 0; i < GRIDS; i++) {
+            GridGeometry g = new GridGeometry(6, 7);
+            g.setUniform(1 + random.nextInt(80), 1 + random.nextInt(80), random.nextInt(5));
+            checkAgainstScan(g, random);
+        }
+    }
+
+    @Test
+    public void nonUniform() {
+        Random random = new Random(2);
+        for (int i = 0; i < GRIDS; i++) {
+            GridGeometry g = new GridGeometry(6, 7);
+            g.setCellSizes(randomSizes(random, 7), randomSizes(random, 6), random.nextInt(5));
+            checkAgainstScan(g, random);
+        }
+    }
+
+    @Test
+    public void mirrored() {
+        Random random = new Random(3);
+        for (int i = 0; i < GRIDS; i++) {
+            GridGeometry g = new GridGeometry(6, 7);
+            if (random.nextBoolean()) {
+                g.setUniform(1 + random.nextInt(80), 1 + random.nextInt(80), random.nextInt(5));
+            } else {
+                g.setCellSizes(randomSizes(random, 7), randomSizes(random, 6), random.nextInt(5));
+            }
+            g.setMirrored(true);
+            checkAgainstScan(g, random);
+        }
+    }
+
+    @Test
+    public void fitted() {
+        Random random = new Random(4);
+        for (int i = 0; i < GRIDS; i++) {
+            GridGeometry g = new GridGeometry(6, 7);
+            int spacing = random.nextInt(5);
+            int width = 7 + spacing * 6 + random.nextInt(500);
+            g.setFitted(width, 1 + random.nextInt(80), spacing);
+            assertEquals(width, g.getWidth());
+            g.setMirrored(random.nextBoolean());
+            checkAgainstScan(g, random);
+        }
+    }
+
+    @Test
+    public void sameAsBaseline() {
+        checkAgainstBaseline(new Random(5), false);
+    }
+
+    @Test
+    public void mirroredSameAsBaseline() {
+        checkAgainstBaseline(new Random(6), true);
+    }
+
+    /**
+     * Points in the spacing are skipped: 1.0 gave them to the cell before the spacing, now they hit nothing.
+     * A mirrored grid is the baseline with columns counted from the right.
+     */
+    private static void checkAgainstBaseline(Random random, boolean mirrored) {
+        Cell cell = new Cell(-1, -1);
+        for (int i = 0; i < GRIDS; i++) {
+            int cellWidth = 1 + random.nextInt(80);
+            int cellHeight = 1 + random.nextInt(80);
+            int spacing = random.nextInt(5);
+            GridGeometry g = new GridGeometry(6, 7);
+            g.setUniform(cellWidth, cellHeight, spacing);
+            g.setMirrored(mirrored);
+
+            int checked = 0;
+            while (checked < 200) {
+                float x = random.nextFloat() * g.getWidth();
+                float y = random.nextFloat() * g.getHeight();
+                if (x % (cellWidth + spacing) >= cellWidth || y % (cellHeight + spacing) >= cellHeight) {
+                    continue;
+                }
+                Cell expected = baselineCellAt(x, y, cellWidth, cellHeight, spacing);
+                if (expected == null) {
+                    // exactly on the left or top edge, 1.0 did not hit it
+                    continue;
+                }
+                String at = "x=" + x + " y=" + y + " cell " + cellWidth + "x" + cellHeight + " spacing " + spacing;
+                assertTrue(at, g.getCellAt(x, y, cell));
+                assertEquals(at, expected.row, cell.row);
+                assertEquals(at, mirrored ? 6 - expected.column : expected.column, cell.column);
+                checked++;
+            }
+        }
+    }
+
+    /**
+     * CalendarGridView.getDayCellForCoordinates of 1.0, as is, with its onMeasure grid size
+     */
+    private static Cell baselineCellAt(float x, float y, int cellWidth, int cellHeight, int spacing) {
+        int gridRight = cellWidth * 7 + spacing * (7 - 1);
+        int gridBottom = cellHeight * 6 + spacing * (6 - 1);
+        if (x > 0 && x < gridRight
+                && y > 0 && y < gridBottom) {
+            float cX = 0, cY = 0;
+            int row = -1, col = -1; // it will be always incremented at least ones
+
+            while (cY < y) {
+                cY += cellHeight + spacing;
+                row++;
+            }
+            while (cX < x) {
+                cX += cellWidth + spacing;
+                col++;
+            }
+
+            return new Cell(row, col);
+        } else {
+            return null;
+        }
+    }
+
+    private static int[] randomSizes(Random random, int count) {
+        int[] r = new int[count];
+        for (int i = 0; i < count; i++) {
+            r[i] = 1 + random.nextInt(80);
+        }
+        return r;
+    }
+
+    private static void checkAgainstScan(GridGeometry g, Random random) {
+        Cell cell = new Cell(-1, -1);
+        // every pixel edge and center, and random points around the grid
+        for (int x = -2; x <= g.getWidth() + 2; x++) {
+            assertEquals("x=" + x, scanColumn(g, x), g.getColumnAt(x));
+            assertEquals("x=" + (x + 0.5f), scanColumn(g, x + 0.5f), g.getColumnAt(x + 0.5f));
+        }
+        for (int y = -2; y <= g.getHeight() + 2; y++) {
+            assertEquals("y=" + y, scanRow(g, y), g.getRowAt(y));
+            assertEquals("y=" + (y + 0.5f), scanRow(g, y + 0.5f), g.getRowAt(y + 0.5f));
+        }
+        for (int i = 0; i < 200; i++) {
+            float x = random.nextFloat() * (g.getWidth() + 20) - 10;
+            float y = random.nextFloat() * (g.getHeight() + 20) - 10;
+            int column = scanColumn(g, x);
+            int row = scanRow(g, y);
+            if (column < 0 || row < 0) {
+                assertFalse(g.getCellAt(x, y, cell));
+            } else {
+                assertTrue(g.getCellAt(x, y, cell));
+                assertEquals(row, cell.row);
+                assertEquals(column, cell.column);
+            }
+        }
+    }
+
+    private static int scanColumn(GridGeometry g, float x) {
+        for (int column = 0; column < g.getColumns(); column++) {
+            if (x >= g.getColumnLeft(column) && x < g.getColumnRight(column)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private static int scanRow(GridGeometry g, float y) {
+        for (int row = 0; row < g.getRows(); row++) {
+            if (y >= g.getRowTop(row) && y < g.getRowBottom(row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+}
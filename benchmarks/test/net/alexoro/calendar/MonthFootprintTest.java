@@ -0,0 +1,73 @@
+package net.alexoro.calendar;
+
+import net.alexoro.calendar.LegacyMonthGridBenchmark.LegacyDayCell;
+import net.alexoro.calendar.LegacyMonthGridBenchmark.LegacyGridView;
+import net.alexoro.calendar.LegacyMonthGridBenchmark.LegacyMonthDescriptor;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Packed cells against the object grid of 1.0 (see LegacyMonthGridBenchmark):
+ * the same days and states, and the retained size of the cells of one month, measured by JOL.
+ * Day styles are shared by all months, so they are not counted.
+ */
+public class MonthFootprintTest {
+
+    private static final LocalDate TODAY = new LocalDate(2013, 6, 20);
+
+    @Test
+    public void sameCellsAsLegacy() {
+        int today = EpochDays.of(TODAY);
+        DateSet enabled = DateSet.ofEpochDays(today - 100, today + 100);
+        DateSet selected = DateSet.ofEpochDays(today - 3, today + 3);
+        LegacyGridView legacy = createLegacyGridView();
+
+        for (int month = 0; month < 12; month++) {
+            int[] cells = MonthCellsBuilder.build(
+                    new MonthDescriptor(2013, month, Calendar.MONDAY), enabled, selected, today);
+            LegacyDayCell[][] grid = legacy.createDefaultDayCellDescriptions(
+                    new LegacyMonthDescriptor(2013, month, Calendar.MONDAY));
+            for (int i = 0; i < cells.length; i++) {
+                LegacyDayCell c = grid[i / 7][i % 7];
+                String at = "month " + month + ", cell " + i;
+                // year/month are not compared: 1.0 took a trailing 10th of the next month for this month
+                assertEquals(at, c.day, DayCellDescription.getDay(cells[i]));
+                assertEquals(at, c.isEnabled,
+                        DayCellDescription.hasState(cells[i], DayCellDescription.STATE_ENABLED));
+                assertEquals(at, c.isSelected,
+                        DayCellDescription.hasState(cells[i], DayCellDescription.STATE_SELECTED));
+            }
+        }
+    }
+
+    @Test
+    public void retainedSize() {
+        LegacyGridView legacy = createLegacyGridView();
+        LegacyDayCell[][] grid = legacy.createDefaultDayCellDescriptions(
+                new LegacyMonthDescriptor(2013, 5, Calendar.MONDAY));
+        long legacySize = GraphLayout.parseInstance((Object) grid)
+                .subtract(GraphLayout.parseInstance((Object[]) legacy.getStyles()))
+                .totalSize();
+
+        int today = EpochDays.of(TODAY);
+        int[] cells = MonthCellsBuilder.build(new MonthDescriptor(2013, 5, Calendar.MONDAY),
+                DateSet.ofEpochDays(today - 100, today + 100), DateSet.ofEpochDays(today - 3, today + 3), today);
+        long packedSize = GraphLayout.parseInstance((Object) cells).totalSize();
+
+        assertTrue("packed " + packedSize + " vs legacy " + legacySize + " bytes", packedSize * 4 < legacySize);
+    }
+
+    private static LegacyGridView createLegacyGridView() {
+        LegacyGridView r = new LegacyGridView(TODAY);
+        r.enabledRange = new LocalDate[] { TODAY.minusDays(100), TODAY.plusDays(100) };
+        r.selectedRange = new LocalDate[] { TODAY.minusDays(3), TODAY.plusDays(3) };
+        return r;
+    }
+
+}
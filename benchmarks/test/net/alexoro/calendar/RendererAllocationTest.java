@@ -0,0 +1,52 @@
+package net.alexoro.calendar;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Steady-state frames of MonthRenderer must not allocate: any garbage in onDraw
+ * shows up as GC pauses while scrolling. Frames are drawn into the JVM stub of Canvas
+ * after the first frame has prepared the atlas and label metrics, as on a device.
+ */
+public class RendererAllocationTest {
+
+    private static final int FRAMES = 100;
+
+    @Test
+    public void framesDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        FrameBenchmark frames = new FrameBenchmark();
+        frames.setup();
+        // the same loop once untimed, so the interpreter and the measurement itself are warmed up
+        drawFrames(frames);
+
+        long overhead = threads.getThreadAllocatedBytes(thread);
+        overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        drawFrames(frames);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertEquals("bytes allocated by " + FRAMES + " frames", 0, allocated);
+    }
+
+    private static long drawFrames(FrameBenchmark frames) {
+        long checksum = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            checksum += frames.fullFrame();
+            checksum += frames.damagedCellFrame();
+            checksum += frames.compactFrame();
+        }
+        return checksum;
+    }
+
+}
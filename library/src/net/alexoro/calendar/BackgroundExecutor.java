@@ -0,0 +1,48 @@
+package net.alexoro.calendar;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single low-priority worker shared by all calendars.
+ * It is used to build month models out of the UI thread.
+ * Results must be delivered back via postToUi(), not View.post():
+ * the last one loses runnables of a not attached view when called from a worker thread.
+ */
+class BackgroundExecutor {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "nac-month-builder");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private static final Handler UI_HANDLER = new Handler(Looper.getMainLooper());
+
+    private BackgroundExecutor() {
+    }
+
+    public static Future<?> submit(Runnable task) {
+        return EXECUTOR.submit(task);
+    }
+
+    public static void postToUi(Runnable task) {
+        UI_HANDLER.post(task);
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Immutable event of one or several days, it is shown by DayDecorator on each day of its range.
+ */
+public class CalendarEvent {
+
+    private final LocalDate mStart;
+    private final LocalDate mEnd;
+    private final int mColor;
+    private final Object mTag;
+
+    // epoch days (see EpochDays), both are including
+    final int first;
+    final int last;
+
+    public CalendarEvent(LocalDate day, int color) {
+        this(day, day, color, null);
+    }
+
+    public CalendarEvent(LocalDate startIncluding, LocalDate endIncluding, int color) {
+        this(startIncluding, endIncluding, color, null);
+    }
+
+    /**
+     * @param tag any user data, it is not used by the calendar
+     */
+    public CalendarEvent(LocalDate startIncluding, LocalDate endIncluding, int color, Object tag) {
+        if (endIncluding.isBefore(startIncluding)) {
+            throw new IllegalArgumentException("End of the event is before its start");
+        }
+        mStart = startIncluding;
+        mEnd = endIncluding;
+        mColor = color;
+        mTag = tag;
+        first = EpochDays.of(startIncluding);
+        last = EpochDays.of(endIncluding);
+    }
+
+    public LocalDate getStart() {
+        return mStart;
+    }
+
+    public LocalDate getEnd() {
+        return mEnd;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public Object getTag() {
+        return mTag;
+    }
+
+}
@@ -1,22 +1,21 @@
 package net.alexoro.calendar;
 
 import android.content.Context;
-import android.content.res.ColorStateList;
 import android.graphics.*;
-import android.graphics.drawable.Drawable;
-import android.graphics.drawable.StateListDrawable;
 import android.util.AttributeSet;
-import android.util.Pair;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewParent;
 import android.view.animation.*;
 import android.view.animation.Interpolator;
 import org.joda.time.LocalDate;
 
-import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * User: UAS
@@ -25,9 +24,12 @@ import java.util.Map;
  */
 class CalendarGridView extends View {
 
-    private static final int WEEKS_TO_SHOW = 6; // rows
     private static final int DAYS_IN_WEEK = 7;  // columns
     private static final int ACTION_MASK = 255; // MotionEvent.ACTION_MASK was introduce only in API #5
+    private static final float FLING_PROJECTION = 0.2f; // seconds of the fling which decide the target page
+    private static final int MAX_FLING_MONTHS = 12;
+    private static final long MIN_SETTLE_DURATION = 80;
+    private static final float QUEUED_DURATION_FACTOR = 0.6f; // the user is already waiting for queued months
 
     static class MonthHelper {
         /**
@@ -35,71 +37,115 @@ class CalendarGridView extends View {
          */
         public Rect area;
 
-        /**
-         *  rows = week, columns = days
-         *  Size: WEEKS_TO_SHOW:DAYS_IN_WEEK
-         */
-        public DayCellDescription[][] month;
-    }
-
-    static class WeekHelper {
-        public Rect area;
-        public DayCellDescription[][] month;
-        int row;
-    }
-
-    static class DayHelper {
-        public Cell cell;
-        public Rect area;
-        public Bitmap background;
-        public Paint cellBackgroundPaint;
-        public Paint cellTextPaint;
-        public float measuredTextWidth;
+        public MonthLayout month;
     }
 
     static class AnimationHelper {
         public boolean active;
-        public DayCellDescription[][] month;
+        public MonthLayout month;
         public Interpolator interpolator;
+        public Interpolator settleInterpolator;
+        public Interpolator currentInterpolator;
+        /**
+         * Offset towards the neighbour month in pages, 0 is the current month and 1 is the neighbour
+         */
+        public float position;
+        public float fromPosition;
+        public float toPosition;
+        /**
+         * The month follows the finger, positions are set by touches, not by the clock
+         */
+        public boolean dragging;
+        public MonthLayout dragPreviousMonth;
+        public MonthLayout dragNextMonth;
+        /**
+         * The target is not adjacent to the current month (a fast fling), so the ring is rebuilt around it
+         */
+        public boolean jump;
+        /**
+         * Linear progress of time from 0 to 1, it is advanced by frames, not by onDraw
+         */
+        public float fraction;
+        public float startFraction;
         public long startTime;
+        /**
+         * 1 while moving to the neighbour month, -1 while turned back to the current one
+         */
+        public int sign;
+        /**
+         * Requests of the same direction received during the animation, all are turned by one transition
+         */
+        public int pendingSteps;
         public long duration;
+        public long currentDuration;
         public MonthTransition transition;
         public int direction;
         public Rect area;
         public Paint paint;
+        public boolean snapshots;
+        public Bitmap currentSnapshot;
+        public Bitmap neighbourSnapshot;
+        public Canvas snapshotCanvas;
     }
 
 
     private Rect mGridSize;
     private Rect mDayCellSize;
+    private MonthLayoutEngine mEngine;
+    private GridGeometry mGeometry;
+    private Rect mDamagedArea;
     private MonthTransition mMonthTransition;
+    private boolean mSnapshotTransition;
 
-    private int mFirstDayOfWeek;
-    private LocalDate mToday;
     private LocalDate mMonthToShow;
-    private Pair<LocalDate, LocalDate> mEnabledRange;
-    private Pair<LocalDate, LocalDate> mSelectedRange;
 
-    private MonthDescriptor mCurrentMonthDescriptor;
-    private DayCellDescription[][] mCurrentMonth;
+    // ring of ready months: the neighbours are built in background after each navigation
+    private MonthLayout mCurrentMonth;
+    private MonthLayout mPreviousMonth;
+    private MonthLayout mNextMonth;
+    private Future<?> mPreviousMonthTask;
+    private Future<?> mNextMonthTask;
+    private int mRingVersion;
+
+    // asynchronous show: the current month is null until the task delivers it
+    private Future<?> mShowTask;
+    private int mShowVersion;
+
+    // navigation to a month which is not prepared: it is done when the task delivers the month
+    private Future<?> mNavigationTask;
+    private int mNavigationVersion;
+    private int mNavigationSteps;
+    private boolean mNavigationQueued;
 
     private MonthHelper mMonthHelper;
-    private WeekHelper mWeekHelper;
-    private DayHelper mDayHelper;
     private AnimationHelper mAnimationHelper;
+    private FrameAnimator mFrameAnimator;
 
-    private Map<Integer, String> mMapDayToString;
     private long mTouchEventStartTime;
+    private boolean mSwipeEnabled;
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    private float mDownX;
+    private float mDownY;
     private Cell mCurrentlyPressedCell;
+    private Cell mPressedCell;
+    private Cell mTouchCell;
     private OnDateClickListener mOnDateClickListener;
     private OnDateChangedListener mOnDateChangedListener;
 
-    private DayCellDescription.DayStyle mTodayDayStyle;
-    private DayCellDescription.DayStyle mThisMonthDayStyle;
-    private DayCellDescription.DayStyle mPreviousMonthDayStyle;
-    private DayCellDescription.DayStyle mNextMonthDayStyle;
+    private MonthRenderer mRenderer;
+    private MonthHeaderRenderer mHeader;
+    private boolean mDrawHeader;
     private int mCellSpacing;
 
+    // incremental changes of events are collected during a frame and applied at once
+    private List<CalendarEvent> mPendingAddedEvents;
+    private List<CalendarEvent> mPendingRemovedEvents;
+    private boolean mEventChangesScheduled;
+    private Runnable mApplyEventChanges;
+
 
     //region Construction
 
@@ -114,86 +160,84 @@ class CalendarGridView extends View {
     public CalendarGridView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
 
-        mMapDayToString = new HashMap<Integer, String>();
-        for (int i = 1; i <= 31; i++) {
-            mMapDayToString.put(i, String.valueOf(i));
-        }
         mTouchEventStartTime = -1;
         mCurrentlyPressedCell = null;
+        mPressedCell = new Cell(-1, -1);
+        mTouchCell = new Cell(-1, -1);
         mOnDateClickListener = null;
 
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mSwipeEnabled = true;
+        mVelocityTracker = null;
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+
         initWithDefaults();
     }
 
     protected void initWithDefaults() {
         mGridSize = new Rect();
         mDayCellSize = new Rect(0, 0, 40, 40);
+        mEngine = new MonthLayoutEngine();
+        mGeometry = mEngine.getGeometry();
+        mDamagedArea = new Rect();
         mMonthTransition = MonthTransition.NONE;
+        mSnapshotTransition = false;
 
-        mFirstDayOfWeek = Calendar.getInstance().getFirstDayOfWeek();
-        mToday = new LocalDate();
-        mMonthToShow = new LocalDate(mToday);
-        mEnabledRange = null;
-        mSelectedRange = null;
+        mMonthToShow = new LocalDate();
+        mRingVersion = 0;
+        mShowTask = null;
+        mShowVersion = 0;
+        mNavigationTask = null;
+        mNavigationVersion = 0;
+        mNavigationSteps = 0;
+        mNavigationQueued = false;
 
         //region Helpers init
         mMonthHelper = new MonthHelper();
         mMonthHelper.area = new Rect();
-        mMonthHelper.month = mCurrentMonth;
-
-        mWeekHelper = new WeekHelper();
-        mWeekHelper.area = new Rect();
-        mWeekHelper.month = mMonthHelper.month;
-        mWeekHelper.row = -1;
-
-        mDayHelper = new DayHelper();
-        mDayHelper.cell = new Cell(-1, -1);
-        mDayHelper.area = new Rect();
-        mDayHelper.background = null;
-        mDayHelper.cellBackgroundPaint = new Paint();
-        mDayHelper.cellTextPaint = new Paint();
-        mDayHelper.cellTextPaint.setAntiAlias(true);
-        mDayHelper.cellTextPaint.setStyle(Paint.Style.FILL);
-        mDayHelper.measuredTextWidth = -1f;
+        mMonthHelper.month = null;
         //endregion
 
         mAnimationHelper = new AnimationHelper();
         mAnimationHelper.interpolator = new AccelerateDecelerateInterpolator();
+        mAnimationHelper.settleInterpolator = new DecelerateInterpolator();
         mAnimationHelper.duration = 700;
         mAnimationHelper.area = new Rect();
         mAnimationHelper.paint = new Paint();
         mAnimationHelper.paint.setAntiAlias(true);
         mAnimationHelper.paint.setStyle(Paint.Style.FILL);
+        mAnimationHelper.snapshots = false;
+        mAnimationHelper.snapshotCanvas = new Canvas();
+        mFrameAnimator = new FrameAnimator(getContext(), new FrameAnimator.Callback() {
+            @Override
+            public boolean onFrame(long frameTime) {
+                return onAnimationFrame(frameTime);
+            }
+        });
 
 
         //region styles from xml
-        mTodayDayStyle = new DayCellDescription.DayStyle();
-        mTodayDayStyle.name = "Today";
-        mTodayDayStyle.textSize = 14f;
-        mTodayDayStyle.drawable = (StateListDrawable) getResources().getDrawable(R.drawable.nac__bg_today);
-        mTodayDayStyle.textColor = getResources().getColorStateList(R.color.nac__today);
-
-        mThisMonthDayStyle = new DayCellDescription.DayStyle();
-        mThisMonthDayStyle.name = "ThisMonth";
-        mThisMonthDayStyle.textSize = 14f;
-        mThisMonthDayStyle.drawable = (StateListDrawable) getResources().getDrawable(R.drawable.nac__bg_this_month);
-        mThisMonthDayStyle.textColor = getResources().getColorStateList(R.color.nac__this_month);
-
-        mPreviousMonthDayStyle = new DayCellDescription.DayStyle();
-        mPreviousMonthDayStyle.name = "PreviousMonth";
-        mPreviousMonthDayStyle.textSize = 14f;
-        mPreviousMonthDayStyle.drawable = (StateListDrawable) getResources().getDrawable(R.drawable.nac__bg_previous_month);
-        mPreviousMonthDayStyle.textColor = getResources().getColorStateList(R.color.nac__previous_month);
-
-        mNextMonthDayStyle = new DayCellDescription.DayStyle();
-        mNextMonthDayStyle.name = "NextMonth";
-        mNextMonthDayStyle.textSize = 14f;
-        mNextMonthDayStyle.drawable = (StateListDrawable) getResources().getDrawable(R.drawable.nac__bg_next_month);
-        mNextMonthDayStyle.textColor = getResources().getColorStateList(R.color.nac__next_month);
-
         mCellSpacing = 2;
+        mGeometry.setUniform(mDayCellSize.width(), mDayCellSize.height(), mCellSpacing);
+        mGeometry.setMirrored(CalendarTheme.get(getContext()).isRtl());
+        mRenderer = new MonthRenderer(mGeometry, CalendarTheme.get(getContext()));
+        mRenderer.setCellSize(mDayCellSize.width(), mDayCellSize.height());
+        mHeader = new MonthHeaderRenderer(mGeometry, CalendarTheme.get(getContext()), getResources());
+        mDrawHeader = false;
         //endregion
 
+        mPendingAddedEvents = new ArrayList<CalendarEvent>();
+        mPendingRemovedEvents = new ArrayList<CalendarEvent>();
+        mEventChangesScheduled = false;
+        mApplyEventChanges = new Runnable() {
+            @Override
+            public void run() {
+                applyEventChanges();
+            }
+        };
+
         show(mMonthToShow);
     }
 
@@ -205,10 +249,25 @@ class CalendarGridView extends View {
     public void setDayCellSize(int width, int height) {
         // TODO Here might be a bug when this method is called during the animation
         mDayCellSize.set(0, 0, width, height);
+        mGeometry.setUniform(width, height, mCellSpacing);
+        mRenderer.setCellSize(width, height);
         requestLayout();
         invalidate();
     }
 
+    /**
+     * Days of a week go from right to left. By default it follows the locale.
+     */
+    public void setMirrored(boolean mirrored) {
+        mGeometry.setMirrored(mirrored);
+        mCurrentlyPressedCell = null;
+        invalidate();
+    }
+
+    public boolean isMirrored() {
+        return mGeometry.isMirrored();
+    }
+
     public int getDayCellWidth() {
         return mDayCellSize.width();
     }
@@ -217,6 +276,20 @@ class CalendarGridView extends View {
         return mDayCellSize.height();
     }
 
+    /**
+     * Cells narrower or lower than the size are drawn by flat rects, without day numbers and drawables,
+     * events are shown by a mark. E.g. for thumbnails, where the full detail is not readable anyway.
+     * @param size in px, 0 draws all cells in full detail
+     */
+    public void setCompactCellSize(int size) {
+        mRenderer.setCompactCellSize(size);
+        invalidate();
+    }
+
+    public int getCompactCellSize() {
+        return mRenderer.getCompactCellSize();
+    }
+
     public void setMonthTransition(MonthTransition transition) {
         mMonthTransition = transition;
     }
@@ -225,6 +298,40 @@ class CalendarGridView extends View {
         return mMonthTransition;
     }
 
+    /**
+     * Months can be dragged along the axis of the month transition, it has no effect for MonthTransition.NONE.
+     * A fling turns as many pages as its velocity says, intermediate months are not built.
+     */
+    public void setSwipeEnabled(boolean enabled) {
+        mSwipeEnabled = enabled;
+    }
+
+    public boolean isSwipeEnabled() {
+        return mSwipeEnabled;
+    }
+
+    /**
+     * If enabled, both months are rendered into bitmaps once at the start of the transition
+     * and each frame just moves these bitmaps instead of drawing all cells of two months.
+     */
+    public void setSnapshotTransition(boolean enabled) {
+        mSnapshotTransition = enabled;
+        if (!enabled) {
+            recycleAnimationSnapshots();
+        }
+    }
+
+    public boolean isSnapshotTransition() {
+        return mSnapshotTransition;
+    }
+
+    /**
+     * Layout logic of the grid, it has no Android dependencies
+     */
+    public MonthLayoutEngine getLayoutEngine() {
+        return mEngine;
+    }
+
     public OnDateClickListener getOnDateClickListener() {
         return mOnDateClickListener;
     }
@@ -241,122 +348,866 @@ class CalendarGridView extends View {
         mOnDateChangedListener = onDateChangedListener;
     }
 
+    /**
+     * A null end means today, an end before the start enables no days
+     */
     public void setEnabledRange(LocalDate startIncluding, LocalDate endIncluding) {
-        mEnabledRange = new Pair<LocalDate, LocalDate>(
-                new LocalDate(startIncluding),
-                new LocalDate(endIncluding));
+        setEnabledDates(toDateSet(startIncluding, endIncluding));
+    }
+
+    /**
+     * Any set of enabled days, e.g. a range without holidays and sold-out days
+     * @param dates null means that all days are enabled
+     */
+    public void setEnabledDates(DateSet dates) {
+        mEngine.setEnabledDates(dates);
         updateEnabledSelectedMonthParams();
-        invalidate();
+        resetNeighbourMonths();
+    }
+
+    public DateSet getEnabledDates() {
+        return mEngine.getEnabledDates();
     }
 
     public LocalDate getEnabledRangeStart() {
-        if (mEnabledRange != null) {
-            return mEnabledRange.first;
+        DateSet range = mEngine.getEnabledDates();
+        if (range != null) {
+            return range.getFirstDate();
         }
         return null;
     }
 
     public LocalDate getEnabledRangeEnd() {
-        if (mEnabledRange != null) {
-            return mEnabledRange.second;
+        DateSet range = mEngine.getEnabledDates();
+        if (range != null) {
+            return range.getLastDate();
         }
         return null;
     }
 
+    /**
+     * Both ends null clear the selection, otherwise a null end means today
+     * and an end before the start selects no days
+     */
     public void setSelectedRange(LocalDate startIncluding, LocalDate endIncluding) {
         //TODO bad code
         if (startIncluding == null && endIncluding == null) {
-            mSelectedRange = null;
+            setSelectedDates(null);
         } else {
-            mSelectedRange = new Pair<LocalDate, LocalDate>(
-                    new LocalDate(startIncluding),
-                    new LocalDate(endIncluding));
+            setSelectedDates(toDateSet(startIncluding, endIncluding));
         }
+    }
+
+    /**
+     * Any set of selected days, e.g. several ranges
+     * @param dates null means that nothing is selected
+     */
+    public void setSelectedDates(DateSet dates) {
+        mEngine.setSelectedDates(dates);
         updateEnabledSelectedMonthParams();
-        invalidate();
+        resetNeighbourMonths();
+    }
+
+    public DateSet getSelectedDates() {
+        return mEngine.getSelectedDates();
     }
 
     public LocalDate getSelectedRangeStart() {
-        if (mSelectedRange != null) {
-            return mSelectedRange.first;
+        DateSet range = mEngine.getSelectedDates();
+        if (range != null) {
+            return range.getFirstDate();
         }
         return null;
     }
 
     public LocalDate getSelectedRangeEnd() {
-        if (mSelectedRange != null) {
-            return mSelectedRange.second;
+        DateSet range = mEngine.getSelectedDates();
+        if (range != null) {
+            return range.getLastDate();
         }
         return null;
     }
 
+    /**
+     * Events are indexed once here, so drawing only takes the events of the visible days.
+     * @param events null or empty to remove all events
+     */
+    public void setEvents(Collection<CalendarEvent> events) {
+        mPendingAddedEvents.clear();
+        mPendingRemovedEvents.clear();
+        mEngine.setEvents(events);
+        updateEnabledSelectedMonthParams();
+        resetNeighbourMonths();
+    }
+
+    /**
+     * Changes are applied at the next frame together with all other changes made before it.
+     * Only the cells with changed events are repainted.
+     */
+    public void addEvents(Collection<CalendarEvent> events) {
+        mPendingAddedEvents.addAll(events);
+        scheduleEventChanges();
+    }
+
+    public void addEvent(CalendarEvent event) {
+        mPendingAddedEvents.add(event);
+        scheduleEventChanges();
+    }
+
+    /**
+     * Events are compared by identity, so the same instances as were added must be given
+     */
+    public void removeEvents(Collection<CalendarEvent> events) {
+        for (CalendarEvent event : events) {
+            removePendingEvent(event);
+        }
+        scheduleEventChanges();
+    }
+
+    public void removeEvent(CalendarEvent event) {
+        removePendingEvent(event);
+        scheduleEventChanges();
+    }
+
+    /**
+     * Events are immutable, so a modification is a replacement of the instance
+     */
+    public void updateEvent(CalendarEvent oldEvent, CalendarEvent newEvent) {
+        removePendingEvent(oldEvent);
+        mPendingAddedEvents.add(newEvent);
+        scheduleEventChanges();
+    }
+
+    /**
+     * @param decorator null to draw no markers of events
+     */
+    public void setDayDecorator(DayDecorator decorator) {
+        mRenderer.setDayDecorator(decorator);
+        invalidate();
+    }
+
+    public DayDecorator getDayDecorator() {
+        return mRenderer.getDayDecorator();
+    }
+
+    /**
+     * If enabled, the month title and names of weekdays are drawn above the days by this view,
+     * so no other views are needed for them. Taps into the header are not consumed.
+     */
+    public void setDrawHeader(boolean enabled) {
+        mDrawHeader = enabled;
+        if (enabled) {
+            mHeader.setMonth(mMonthToShow);
+            mHeader.setFirstDayOfWeek(mEngine.getFirstDayOfWeek());
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public boolean isDrawHeader() {
+        return mDrawHeader;
+    }
+
+    /**
+     * Arrows of the drawn header, they show if there are months to navigate to
+     */
+    public void setHeaderArrows(boolean previous, boolean next) {
+        mHeader.setArrows(previous, next);
+        if (mDrawHeader) {
+            invalidate(0, 0, getWidth(), mHeader.getTitleHeight());
+        }
+    }
+
+    public int getHeaderHeight() {
+        return mDrawHeader ? mHeader.getHeight() : 0;
+    }
+
     //endregion
 
 
     //region Change data to show
 
     public void nextMonth() {
-        if (mAnimationHelper.active) {
-            return;
-        }
-        if (mMonthTransition == MonthTransition.NONE) {
-            show(mMonthToShow.plusMonths(1));
-        } else {
-            setupAnimation(1);
-            invalidate();
-            if (mOnDateChangedListener != null) {
-                mOnDateChangedListener.onChanged(mMonthToShow.plusMonths(1));
+        navigate(1);
+    }
+
+    public void previousMonth() {
+        navigate(-1);
+    }
+
+    /**
+     * A request during the animation is not dropped, it is queued, see retargetAnimation.
+     * The listener is notified once the month is settled, not when the animation starts.
+     */
+    protected void navigate(int direction) {
+        if (mNavigationTask != null) {
+            // the target is still being built, the request moves the target
+            int steps = mNavigationSteps + direction;
+            boolean queued = mNavigationQueued;
+            cancelPendingNavigation();
+            if (steps != 0) {
+                startNavigation(steps, queued);
+            }
+        } else if (mMonthTransition == MonthTransition.NONE) {
+            if (mAnimationHelper.active) {
+                finishAnimation();
             }
+            startNavigation(direction, false);
+        } else if (mAnimationHelper.active) {
+            retargetAnimation(direction);
+        } else {
+            startNavigation(direction, false);
         }
     }
 
-    public void previousMonth() {
-        if (mAnimationHelper.active) {
-            return;
+    /**
+     * Shows the month which is steps away from the current one, no month is built on the UI thread for it.
+     * If the month is neither in the ring nor in the cache of layouts, it is built in background
+     * and the navigation is done when it is ready; the current month is shown meanwhile.
+     * @param queued true if it continues a transition, so the transition is faster
+     */
+    protected void startNavigation(int steps, boolean queued) {
+        MonthLayout target = getPreparedMonth(steps);
+        if (target == null) {
+            navigateInBackground(steps, queued);
+        } else {
+            navigateToMonth(target, steps, queued);
         }
+    }
+
+    protected void navigateToMonth(MonthLayout target, int steps, boolean queued) {
+        int direction = steps < 0 ? -1 : 1;
         if (mMonthTransition == MonthTransition.NONE) {
-            show(mMonthToShow.minusMonths(1));
+            if (Math.abs(steps) > 1) {
+                jumpToMonth(target, true);
+            } else {
+                switchToMonth(target, direction);
+            }
         } else {
-            setupAnimation(-1);
+            setupAnimation(target, steps, AnimationUtils.currentAnimationTimeMillis(), queued);
+            mFrameAnimator.start();
             invalidate();
-            if (mOnDateChangedListener != null) {
-                mOnDateChangedListener.onChanged(mMonthToShow.minusMonths(1));
+        }
+    }
+
+    protected void navigateInBackground(int steps, boolean queued) {
+        cancelPendingNavigation();
+        mNavigationSteps = steps;
+        mNavigationQueued = queued;
+        final LocalDate month = mMonthToShow.plusMonths(steps);
+        final int version = mNavigationVersion;
+        mNavigationTask = BackgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final MonthLayout model = mEngine.createLayout(month);
+                BackgroundExecutor.postToUi(new Runnable() {
+                    @Override
+                    public void run() {
+                        // another month could be shown or the navigation changed while it was built
+                        if (version != mNavigationVersion) {
+                            return;
+                        }
+                        mNavigationTask = null;
+                        navigateToMonth(mEngine.updateLayout(model), mNavigationSteps, mNavigationQueued);
+                    }
+                });
             }
+        });
+    }
+
+    protected void cancelPendingNavigation() {
+        mNavigationVersion++;
+        if (mNavigationTask != null) {
+            mNavigationTask.cancel(false);
+            mNavigationTask = null;
         }
     }
 
     public void show(LocalDate month) {
+        cancelAnimation();
+        cancelPendingShow();
         mMonthToShow = new LocalDate(month);
-        mCurrentMonthDescriptor = new MonthDescriptor(mMonthToShow.getYear(),
-                mMonthToShow.getMonthOfYear() - 1, mFirstDayOfWeek);
-        mCurrentMonth = createDefaultDayCellDescriptions(mCurrentMonthDescriptor);
+        mCurrentMonth = mEngine.createLayout(mMonthToShow);
+        mCurrentlyPressedCell = null;
+        resetNeighbourMonths();
         invalidate();
-        if (mOnDateChangedListener != null) {
-            mOnDateChangedListener.onChanged(mMonthToShow);
+        onMonthChanged(mMonthToShow);
+    }
+
+    /**
+     * The same as show(), but the month is built in background, so it is safe to call it
+     * from getView() of a list during fling. A prepared neighbour month is shown at once,
+     * otherwise an empty grid is drawn until the month is ready.
+     * The previous request of this view is cancelled, so a recycled view never shows a stale month.
+     */
+    public void showAsync(LocalDate month) {
+        cancelAnimation();
+        cancelPendingShow();
+        LocalDate target = new LocalDate(month);
+        mCurrentlyPressedCell = null;
+
+        MonthLayout ready = null;
+        if (mCurrentMonth != null && mCurrentMonth.isMonth(target)) {
+            ready = mCurrentMonth;
+        } else if (mPreviousMonth != null && mPreviousMonth.isMonth(target)) {
+            ready = mPreviousMonth;
+        } else if (mNextMonth != null && mNextMonth.isMonth(target)) {
+            ready = mNextMonth;
+        }
+
+        mMonthToShow = target;
+        if (ready != null) {
+            mCurrentMonth = mEngine.updateLayout(ready);
+            resetNeighbourMonths();
+        } else {
+            mCurrentMonth = null;
+            // neighbours are useless until the month is ready
+            mPreviousMonth = null;
+            mNextMonth = null;
+            cancelNeighbourTasks();
+            mShowTask = showInBackground(target);
+        }
+        invalidate();
+        onMonthChanged(mMonthToShow);
+    }
+
+    private Future<?> showInBackground(final LocalDate month) {
+        final int version = ++mShowVersion;
+        return BackgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final MonthLayout model = mEngine.createLayout(month);
+                BackgroundExecutor.postToUi(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the view could be rebound to another month while it was built
+                        if (version != mShowVersion) {
+                            return;
+                        }
+                        mShowTask = null;
+                        mCurrentMonth = mEngine.updateLayout(model);
+                        resetNeighbourMonths();
+                        invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    protected void cancelPendingShow() {
+        mShowVersion++;
+        if (mShowTask != null) {
+            mShowTask.cancel(false);
+            mShowTask = null;
         }
     }
 
     //endregion
 
 
-    //region Animation
+    //region Ring of prepared months
+
+    /**
+     * Returns the month which is steps away from the current one: a neighbour from the ring
+     * or a layout from the cache. It is never built here.
+     * @return null if the month is not prepared yet
+     */
+    protected MonthLayout getPreparedMonth(int steps) {
+        LocalDate target = mMonthToShow.plusMonths(steps);
+        MonthLayout r = steps == -1 ? mPreviousMonth : (steps == 1 ? mNextMonth : null);
+        if (r == null || !r.isMonth(target)) {
+            r = mEngine.getCachedLayout(target);
+        }
+        return r;
+    }
+
+    protected void switchToMonth(MonthLayout target, int direction) {
+        switchToMonth(target, direction, true);
+    }
 
-    protected void setupAnimation(int direction) {
-        MonthDescriptor md = new MonthDescriptor(mMonthToShow.getYear(),
-                mMonthToShow.getMonthOfYear() - 1, mFirstDayOfWeek);
+    /**
+     * @param notify false if the month is not settled, e.g. a queued transition starts from it at once
+     */
+    protected void switchToMonth(MonthLayout target, int direction, boolean notify) {
+        cancelPendingShow();
+        mCurrentlyPressedCell = null;
         if (direction < 0) {
-            md.previousMonth();
+            mNextMonth = mCurrentMonth;
+            mPreviousMonth = null;
         } else {
-            md.nextMonth();
+            mPreviousMonth = mCurrentMonth;
+            mNextMonth = null;
+        }
+        mCurrentMonth = target;
+        mMonthToShow = target.getMonth();
+        prepareNeighbourMonths();
+        invalidate();
+        if (notify) {
+            onMonthChanged(mMonthToShow);
+        }
+    }
+
+    protected void resetNeighbourMonths() {
+        mPreviousMonth = null;
+        mNextMonth = null;
+        prepareNeighbourMonths();
+    }
+
+    protected void prepareNeighbourMonths() {
+        cancelNeighbourTasks();
+        if (mPreviousMonth == null) {
+            mPreviousMonthTask = buildInBackground(mMonthToShow.minusMonths(1), -1);
+        }
+        if (mNextMonth == null) {
+            mNextMonthTask = buildInBackground(mMonthToShow.plusMonths(1), 1);
         }
-        mAnimationHelper.month = createDefaultDayCellDescriptions(md);
+    }
+
+    protected void cancelNeighbourTasks() {
+        mRingVersion++;
+        if (mPreviousMonthTask != null) {
+            mPreviousMonthTask.cancel(false);
+            mPreviousMonthTask = null;
+        }
+        if (mNextMonthTask != null) {
+            mNextMonthTask.cancel(false);
+            mNextMonthTask = null;
+        }
+    }
+
+    private Future<?> buildInBackground(final LocalDate month, final int direction) {
+        final int version = mRingVersion;
+        return BackgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final MonthLayout model = mEngine.createLayout(month);
+                BackgroundExecutor.postToUi(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the ring could be moved or ranges changed while it was built,
+                        // changes of events are cheap to apply here
+                        if (version != mRingVersion) {
+                            return;
+                        }
+                        if (direction < 0) {
+                            mPreviousMonth = mEngine.updateLayout(model);
+                            mPreviousMonthTask = null;
+                        } else {
+                            mNextMonth = mEngine.updateLayout(model);
+                            mNextMonthTask = null;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    //endregion
+
+
+    //region Animation
+
+    /**
+     * Months queued during an animation are coalesced into one faster transition.
+     * For more than one month only the target is taken, intermediate months are never shown.
+     * The target is prefetched when it is queued, see retargetAnimation.
+     * @param steps signed count of months from the current one
+     * @return false if the target month is not prepared yet, nothing is started then
+     */
+    protected boolean startQueuedAnimation(int steps, long startTime) {
+        MonthLayout target = getPreparedMonth(steps);
+        if (target == null) {
+            return false;
+        }
+        setupAnimation(target, steps, startTime, true);
+        return true;
+    }
+
+    /**
+     * @param steps signed count of months from the current one, the target slides in as a neighbour
+     * @param startTime in terms of AnimationUtils.currentAnimationTimeMillis()
+     * @param queued true if it continues a transition, so it is faster
+     */
+    protected void setupAnimation(MonthLayout target, int steps, long startTime, boolean queued) {
+        mAnimationHelper.month = target;
+        mAnimationHelper.snapshots = mSnapshotTransition && prepareAnimationSnapshots();
 
         mAnimationHelper.active = true;
-        mAnimationHelper.startTime = System.currentTimeMillis();
-        mAnimationHelper.direction = direction;
+        mAnimationHelper.dragging = false;
+        mAnimationHelper.jump = Math.abs(steps) > 1;
+        mAnimationHelper.position = 0f;
+        mAnimationHelper.fromPosition = 0f;
+        mAnimationHelper.toPosition = 1f;
+        mAnimationHelper.currentInterpolator = mAnimationHelper.interpolator;
+        mAnimationHelper.currentDuration = queued
+                ? (long) (mAnimationHelper.duration * QUEUED_DURATION_FACTOR)
+                : mAnimationHelper.duration;
+        mAnimationHelper.fraction = 0f;
+        mAnimationHelper.startFraction = 0f;
+        mAnimationHelper.startTime = startTime;
+        mAnimationHelper.sign = 1;
+        mAnimationHelper.pendingSteps = 0;
+        mAnimationHelper.direction = steps < 0 ? -1 : 1;
         mAnimationHelper.transition = mMonthTransition;
     }
 
+    /**
+     * The same direction is queued: all queued months are turned by one transition
+     * which starts at the frame this one ends.
+     * The opposite direction cancels a queued month, or turns the animation back from its current position.
+     */
+    protected void retargetAnimation(int direction) {
+        AnimationHelper h = mAnimationHelper;
+        if (h.dragging) {
+            // the finger decides
+            return;
+        }
+        if (h.toPosition < 1f) {
+            // a settle back after the drag is not a transition, the request starts a new one
+            finishAnimation();
+            startNavigation(direction, false);
+            return;
+        }
+        int heading = h.sign * h.direction;
+        if (direction == heading) {
+            h.pendingSteps++;
+            prefetchMonth(getTargetMonth());
+        } else if (h.pendingSteps > 0) {
+            h.pendingSteps--;
+            if (h.pendingSteps > 0) {
+                prefetchMonth(getTargetMonth());
+            }
+        } else {
+            h.startFraction = h.fraction;
+            h.startTime = AnimationUtils.currentAnimationTimeMillis();
+            h.sign = -h.sign;
+        }
+    }
+
+    /**
+     * The month is built in background only to be put into the cache of layouts,
+     * so a queued transition takes it from there when it starts
+     */
+    protected void prefetchMonth(final LocalDate month) {
+        if (mEngine.getCache() == null) {
+            return;
+        }
+        BackgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.createLayout(month);
+            }
+        });
+    }
+
+    /**
+     * The month which is shown when the animation and all queued requests are over.
+     * Navigation limits must be checked against it, not against the month shown now.
+     */
+    public LocalDate getTargetMonth() {
+        if (mNavigationTask != null) {
+            return mMonthToShow.plusMonths(mNavigationSteps);
+        }
+        AnimationHelper h = mAnimationHelper;
+        if (!h.active || h.dragging) {
+            return mMonthToShow;
+        }
+        LocalDate r = h.sign > 0 && h.toPosition >= 1f && h.month != null ? h.month.getMonth() : mMonthToShow;
+        return r.plusMonths(h.pendingSteps * h.sign * h.direction);
+    }
+
+    /**
+     * Advances the animation by the frame time. All changes of the model are done here, never in onDraw.
+     * @return false if the animation is over
+     */
+    protected boolean onAnimationFrame(long frameTime) {
+        AnimationHelper h = mAnimationHelper;
+        if (!h.active || h.dragging) {
+            return false;
+        }
+        h.fraction = h.startFraction + h.sign * (float) (frameTime - h.startTime) / h.currentDuration;
+        if (h.sign > 0 ? h.fraction < 1f : h.fraction > 0f) {
+            h.position = h.fromPosition
+                    + (h.toPosition - h.fromPosition) * h.currentInterpolator.getInterpolation(h.fraction);
+            invalidate();
+            return true;
+        }
+
+        // the time after the end belongs to the chained transition, so no frame is spent on a still month
+        long overshoot = (long) ((h.sign > 0 ? h.fraction - 1f : -h.fraction) * h.currentDuration);
+        int heading = h.sign * h.direction;
+        int steps = h.pendingSteps;
+        completeAnimation(steps == 0);
+        if (steps > 0) {
+            // the clock keeps ticking for the queued transition
+            if (startQueuedAnimation(steps * heading, frameTime - overshoot)) {
+                return onAnimationFrame(frameTime);
+            }
+            // the month stays until the target is built, so it is settled for now
+            onMonthChanged(mMonthToShow);
+            navigateInBackground(steps * heading, true);
+        }
+        return false;
+    }
+
+    /**
+     * Jumps to the end of the animation, the target month is shown at once
+     */
+    protected void finishAnimation() {
+        if (mAnimationHelper.active) {
+            mFrameAnimator.stop();
+            completeAnimation(true);
+        }
+    }
+
+    protected void completeAnimation(boolean notify) {
+        AnimationHelper h = mAnimationHelper;
+        h.active = false;
+        h.dragging = false;
+        if (h.sign > 0 && h.toPosition >= 1f && h.month != null) {
+            // the target month is already built, so it is just a swap of references
+            if (h.jump) {
+                jumpToMonth(h.month, notify);
+            } else {
+                switchToMonth(h.month, h.direction, notify);
+            }
+        } else {
+            invalidate();
+        }
+        h.month = null;
+        h.jump = false;
+        h.dragPreviousMonth = null;
+        h.dragNextMonth = null;
+    }
+
+    /**
+     * Stops the animation where it is, e.g. when another month is shown
+     */
+    protected void cancelAnimation() {
+        cancelPendingNavigation();
+        mAnimationHelper.active = false;
+        mAnimationHelper.dragging = false;
+        mAnimationHelper.month = null;
+        mAnimationHelper.dragPreviousMonth = null;
+        mAnimationHelper.dragNextMonth = null;
+        mFrameAnimator.stop();
+    }
+
+    /**
+     * Frames of month transitions which were late because the UI thread was busy
+     */
+    public int getDroppedFrameCount() {
+        return mFrameAnimator.getDroppedFrameCount();
+    }
+
+    public int getAnimationFrameCount() {
+        return mFrameAnimator.getFrameCount();
+    }
+
+    public void resetFrameCounters() {
+        mFrameAnimator.resetCounters();
+    }
+
+    protected boolean prepareAnimationSnapshots() {
+        int width = mGridSize.width();
+        int height = mGridSize.height();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+
+        AnimationHelper h = mAnimationHelper;
+        if (h.currentSnapshot == null
+                || h.currentSnapshot.getWidth() != width
+                || h.currentSnapshot.getHeight() != height) {
+            recycleAnimationSnapshots();
+            h.currentSnapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            h.neighbourSnapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        if (mCurrentMonth != null) {
+            drawMonthToBitmap(mCurrentMonth, h.currentSnapshot);
+        } else {
+            h.currentSnapshot.eraseColor(Color.TRANSPARENT);
+        }
+        drawMonthToBitmap(h.month, h.neighbourSnapshot);
+        return true;
+    }
+
+    protected void drawMonthToBitmap(MonthLayout month, Bitmap target) {
+        target.eraseColor(Color.TRANSPARENT);
+        mAnimationHelper.snapshotCanvas.setBitmap(target);
+        mMonthHelper.area.set(0, 0, mGridSize.width(), mGridSize.height());
+        mMonthHelper.month = month;
+        drawMonth(mAnimationHelper.snapshotCanvas, mMonthHelper);
+    }
+
+    protected void recycleAnimationSnapshots() {
+        AnimationHelper h = mAnimationHelper;
+        h.snapshots = false;
+        if (h.currentSnapshot != null) {
+            h.currentSnapshot.recycle();
+            h.currentSnapshot = null;
+        }
+        if (h.neighbourSnapshot != null) {
+            h.neighbourSnapshot.recycle();
+            h.neighbourSnapshot = null;
+        }
+    }
+
+    //endregion
+
+
+    //region Swipe paging
+
+    protected boolean canSwipe() {
+        return mSwipeEnabled && mMonthTransition != MonthTransition.NONE && mCurrentMonth != null;
+    }
+
+    /**
+     * The same rule as the navigation of CalendarView: only between the first and the last enabled days
+     */
+    protected boolean canNavigate(LocalDate from, int direction) {
+        return direction < 0 ? mEngine.hasPreviousMonth(from) : mEngine.hasNextMonth(from);
+    }
+
+    protected float getPageSize() {
+        return mMonthTransition == MonthTransition.HORIZONTAL
+                ? mGridSize.width() + mCellSpacing
+                : mGridSize.height() + mCellSpacing;
+    }
+
+    /**
+     * Neighbours are taken from the ring or the cache once, nothing is built while the finger moves.
+     * A neighbour which is not prepared yet resists as if there was no month.
+     */
+    protected void startDrag() {
+        finishAnimation();
+        cancelPendingNavigation();
+        onDayCellPressed(null);
+        ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+
+        AnimationHelper h = mAnimationHelper;
+        h.dragPreviousMonth = canNavigate(mMonthToShow, -1) ? getPreparedMonth(-1) : null;
+        h.dragNextMonth = canNavigate(mMonthToShow, 1) ? getPreparedMonth(1) : null;
+        h.active = true;
+        h.dragging = true;
+        h.jump = false;
+        h.snapshots = false;
+        h.transition = mMonthTransition;
+        h.sign = 1;
+        h.pendingSteps = 0;
+        h.direction = 1;
+        h.month = h.dragNextMonth;
+        h.position = 0f;
+    }
+
+    /**
+     * @param offset along the axis of the transition, positive when the finger moves right or down
+     */
+    protected void onDrag(float offset) {
+        AnimationHelper h = mAnimationHelper;
+        h.direction = offset > 0 ? -1 : 1;
+        h.month = h.direction < 0 ? h.dragPreviousMonth : h.dragNextMonth;
+        float distance = Math.abs(offset);
+        if (h.month == null) {
+            // there is nothing there, so the month resists
+            distance /= 3;
+        }
+        h.position = Math.min(1f, distance / getPageSize());
+        invalidate();
+    }
+
+    /**
+     * The target page is where the fling would be after FLING_PROJECTION, but at least the next one
+     * @param velocity along the axis of the transition, pixels per second
+     */
+    protected void endDrag(float velocity) {
+        AnimationHelper h = mAnimationHelper;
+        h.dragging = false;
+        float page = getPageSize();
+        int steps;
+        if (Math.abs(velocity) > mMinimumFlingVelocity) {
+            float offset = -h.direction * h.position * page;
+            steps = -Math.round((offset + velocity * FLING_PROJECTION) / page);
+            if (steps == 0) {
+                steps = velocity > 0 ? -1 : 1;
+            }
+        } else {
+            steps = h.position > 0.5f && h.month != null ? h.direction : 0;
+        }
+
+        // limits are checked month by month, nothing is built for it
+        int direction = steps < 0 ? -1 : 1;
+        int allowed = 0;
+        LocalDate month = mMonthToShow;
+        while (allowed < Math.min(Math.abs(steps), MAX_FLING_MONTHS) && canNavigate(month, direction)) {
+            month = month.plusMonths(direction);
+            allowed++;
+        }
+        steps = allowed * direction;
+
+        if (steps == 0) {
+            h.toPosition = 0f;
+        } else {
+            if (direction != h.direction) {
+                // the finger was on the other side of the current month
+                h.position = -h.position;
+                h.direction = direction;
+            }
+            h.month = direction < 0 ? h.dragPreviousMonth : h.dragNextMonth;
+            h.jump = false;
+            if (Math.abs(steps) > 1) {
+                MonthLayout target = getPreparedMonth(steps);
+                if (target != null) {
+                    // only the target month is taken, it slides in as if it was the neighbour
+                    h.month = target;
+                    h.jump = true;
+                } else if (h.month != null) {
+                    // the neighbour slides in and the rest is queued, the target is built meanwhile
+                    h.pendingSteps = Math.abs(steps) - 1;
+                    prefetchMonth(month);
+                }
+            }
+            h.toPosition = 1f;
+            if (h.month == null) {
+                // nothing is prepared, the month settles back and the navigation waits for the target
+                h.toPosition = 0f;
+                navigateInBackground(steps, true);
+            }
+        }
+        h.fromPosition = h.position;
+        h.fraction = 0f;
+        h.startFraction = 0f;
+        h.sign = 1;
+        h.startTime = AnimationUtils.currentAnimationTimeMillis();
+        h.currentInterpolator = h.settleInterpolator;
+        float distance = Math.abs(h.toPosition - h.fromPosition);
+        long duration = Math.abs(velocity) > mMinimumFlingVelocity
+                // the decelerate interpolator starts twice as fast as its average speed
+                ? (long) (2000 * distance * page / Math.abs(velocity))
+                : (long) (h.duration * distance);
+        h.currentDuration = Math.max(MIN_SETTLE_DURATION, Math.min(duration, h.duration));
+        mFrameAnimator.start();
+        invalidate();
+    }
+
+    /**
+     * The month is not a neighbour, so the ring is built around it again
+     */
+    protected void jumpToMonth(MonthLayout target, boolean notify) {
+        cancelPendingShow();
+        mCurrentlyPressedCell = null;
+        mCurrentMonth = mEngine.updateLayout(target);
+        mMonthToShow = target.getMonth();
+        resetNeighbourMonths();
+        invalidate();
+        if (notify) {
+            onMonthChanged(mMonthToShow);
+        }
+    }
+
     //endregion
 
 
@@ -365,88 +1216,121 @@ class CalendarGridView extends View {
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         // calculate size
-        mGridSize.left = 0;
-        mGridSize.right = mDayCellSize.width() * DAYS_IN_WEEK + mCellSpacing * (DAYS_IN_WEEK - 1);
-        mGridSize.top = 0;
-        mGridSize.bottom = mDayCellSize.height() * WEEKS_TO_SHOW + mCellSpacing * (WEEKS_TO_SHOW - 1);
-
-        // create a temp bitmap
-        if (mDayHelper.background != null) {
-            mDayHelper.background.recycle();
-            mDayHelper.background = null;
-        }
-        mDayHelper.background = Bitmap.createBitmap(
-                mDayCellSize.width(), mDayCellSize.height(), Bitmap.Config.ARGB_8888);
+        mGridSize.set(0, 0, mGeometry.getWidth(), mGeometry.getHeight());
 
-        setMeasuredDimension(mGridSize.width(), mGridSize.height());
+        setMeasuredDimension(mGridSize.width(), getHeaderHeight() + mGridSize.height());
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        int saveCount = -1;
+        if (mDrawHeader) {
+            int headerHeight = mHeader.getHeight();
+            mHeader.draw(canvas, getWidth());
+            // months are drawn below the header, a moving neighbour month must not cover it
+            saveCount = canvas.save();
+            canvas.clipRect(0, headerHeight, getWidth(), headerHeight + mGridSize.height());
+            canvas.translate(0, headerHeight);
+        }
+
         if (mAnimationHelper.active) {
             drawAnimationMonths(canvas);
         } else {
             drawCurrentMonth(canvas);
         }
+
+        if (saveCount != -1) {
+            canvas.restoreToCount(saveCount);
+        }
     }
 
-    protected void drawAnimationMonths(Canvas canvas) {
-        // do animation via translation the canvas
-        long animOffset = System.currentTimeMillis() - mAnimationHelper.startTime;
-        float translate = mAnimationHelper.interpolator.getInterpolation((float)animOffset/ mAnimationHelper.duration);
-        translate *= -mAnimationHelper.direction;
-
-        if (animOffset < mAnimationHelper.duration) {
-            //TODO There is a bug at the end of animation because of fake mCellSpacing
-            if (mAnimationHelper.transition == MonthTransition.HORIZONTAL) {
-                canvas.translate((int)(translate * (mGridSize.width() + mCellSpacing) ), 0);
-            } else {
-                canvas.translate(0, (int)(translate * (mGridSize.height() + mCellSpacing)));
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // builds cancelled at detach are submitted again, ready months are kept
+        if (mCurrentMonth == null) {
+            if (mShowTask == null) {
+                mShowTask = showInBackground(mMonthToShow);
             }
+        } else if (mPreviousMonth == null || mNextMonth == null) {
+            prepareNeighbourMonths();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // the clock must not tick for a detached view
+        finishAnimation();
+        // the worker is shared, builds of a detached view must not delay builds of visible ones;
+        // late results are dropped by the versions
+        cancelNeighbourTasks();
+        cancelPendingShow();
+        cancelPendingNavigation();
+        // it will be re-rendered at the next draw
+        mRenderer.recycle();
+        recycleAnimationSnapshots();
+    }
+
+    protected void drawAnimationMonths(Canvas canvas) {
+        // the state is advanced by onAnimationFrame, drawing only reads it
+        AnimationHelper h = mAnimationHelper;
+        float translate = h.position * -h.direction;
+
+        //TODO There is a bug at the end of animation because of fake mCellSpacing
+        if (h.transition == MonthTransition.HORIZONTAL) {
+            canvas.translate((int)(translate * (mGridSize.width() + mCellSpacing) ), 0);
+        } else {
+            canvas.translate(0, (int)(translate * (mGridSize.height() + mCellSpacing)));
+        }
+        if (h.snapshots) {
+            drawAnimationSnapshots(canvas);
+        } else {
             drawAnimationNeighbourMonth(canvas);
             drawCurrentMonth(canvas);
-            invalidate();
-        } else {
-            // set new current month
-            if (mAnimationHelper.direction > 0) {
-                mMonthToShow = mMonthToShow.plusMonths(1);
-            } else {
-                mMonthToShow = mMonthToShow.minusMonths(1);
-            }
-            mAnimationHelper.active = false;
-
-            // The re-draw must be used to avoid "black-blink" of view
-            // The cause is that show() is slowly operation (~200ms) and must be not called
-            // while the canvas is empty
-            // TODO It is better to calculate all before the animation
-            mMonthHelper.area.left = 0;
-            mMonthHelper.area.top = 0;
-            mMonthHelper.month = mAnimationHelper.month;
-            drawMonth(canvas, mMonthHelper);
-
-            show(mMonthToShow);
-            invalidate();
         }
     }
 
     protected void drawAnimationNeighbourMonth(Canvas canvas) {
+        if (mAnimationHelper.month == null) {
+            // a drag towards a month out of the enabled range
+            return;
+        }
+        setAnimationNeighbourArea(mMonthHelper.area);
+        mMonthHelper.month = mAnimationHelper.month;
+        drawMonth(canvas, mMonthHelper);
+    }
+
+    protected void drawAnimationSnapshots(Canvas canvas) {
+        setAnimationNeighbourArea(mMonthHelper.area);
+        canvas.drawBitmap(mAnimationHelper.currentSnapshot, 0, 0, mAnimationHelper.paint);
+        canvas.drawBitmap(
+                mAnimationHelper.neighbourSnapshot,
+                mMonthHelper.area.left,
+                mMonthHelper.area.top,
+                mAnimationHelper.paint);
+    }
+
+    protected void setAnimationNeighbourArea(Rect area) {
         //TODO There is a bug at the end of animation because of fake mCellSpacing
         if (mAnimationHelper.transition == MonthTransition.HORIZONTAL) {
-            mMonthHelper.area.left = (mGridSize.width() + mCellSpacing) * mAnimationHelper.direction;
-            mMonthHelper.area.top = 0;
+            area.left = (mGridSize.width() + mCellSpacing) * mAnimationHelper.direction;
+            area.top = 0;
         }
         //TODO There is a bug at the end of animation because of fake mCellSpacing
         if (mAnimationHelper.transition == MonthTransition.VERTICAL) {
-            mMonthHelper.area.left = 0;
-            mMonthHelper.area.top = (mGridSize.height() + mCellSpacing) * mAnimationHelper.direction;
+            area.left = 0;
+            area.top = (mGridSize.height() + mCellSpacing) * mAnimationHelper.direction;
         }
-        mMonthHelper.month = mAnimationHelper.month;
-        drawMonth(canvas, mMonthHelper);
     }
 
     protected void drawCurrentMonth(Canvas canvas) {
+        if (mCurrentMonth == null) {
+            // it is being built in background, the empty grid is a placeholder
+            return;
+        }
         mMonthHelper.area.set(0, 0, mGridSize.width(), mGridSize.height());
         mMonthHelper.month = mCurrentMonth;
         drawMonth(canvas, mMonthHelper);
@@ -458,55 +1342,11 @@ class CalendarGridView extends View {
     //region Draw static months
 
     protected void drawMonth(Canvas canvas, MonthHelper h) {
-        for (int i = 0; i < WEEKS_TO_SHOW; i++) {
-            mWeekHelper.area.set(
-                    h.area.left,
-                    h.area.top + i * mDayCellSize.height() + i * mCellSpacing,
-                    h.area.right,
-                    h.area.top + i * mDayCellSize.height() + i * mCellSpacing + mDayCellSize.height());
-            mWeekHelper.month = h.month;
-            mWeekHelper.row = i;
-            drawWeek(canvas, mWeekHelper);
-        }
-    }
-
-    protected void drawWeek(Canvas canvas, WeekHelper h) {
-        for (int i = 0; i < DAYS_IN_WEEK; i++) {
-            mDayHelper.cell.update(h.row, i);
-            mDayHelper.area.set(
-                    h.area.left + i * mDayCellSize.width() + i * mCellSpacing,
-                    h.area.top,
-                    h.area.left + i * mDayCellSize.width() + i * mCellSpacing + mDayCellSize.width(),
-                    h.area.bottom);
-            drawDay(canvas, h.month[h.row][i], mDayHelper);
-        }
-    }
-
-    protected void drawDay(Canvas canvas, DayCellDescription d, DayHelper h) {
-        // get background
-        int[] states = getStatesAsSet(
-                d.isEnabled,
-                d.isSelected,
-                d.isPressed);
-
-        d.dayStyle.drawable.setState(states);
-        drawableToBitmap(d.dayStyle.drawable, h.background);
-
-        canvas.drawBitmap(
-                h.background,
-                h.area.left,
-                h.area.top,
-                h.cellBackgroundPaint);
-
-        String value = mMapDayToString.get(d.day);
-        h.cellTextPaint.setTextSize(d.dayStyle.textSize);
-        h.cellTextPaint.setColor(getTextColorForState(d.dayStyle.textColor, states));
-        h.measuredTextWidth = h.cellTextPaint.measureText(value);
-        canvas.drawText(
-                value,
-                h.area.centerX() - h.measuredTextWidth/2,
-                h.area.centerY() + d.dayStyle.textSize/2 - 2, // трик-хуик, to make it really in current. getTextBounds not helps
-                h.cellTextPaint);
+        // pressed state is not a part of the layout
+        int pressedIndex = h.month == mCurrentMonth && mCurrentlyPressedCell != null
+                ? mCurrentlyPressedCell.row * DAYS_IN_WEEK + mCurrentlyPressedCell.column
+                : -1;
+        mRenderer.drawMonth(canvas, h.month, h.area.left, h.area.top, pressedIndex);
     }
 
     //endregion
@@ -516,49 +1356,101 @@ class CalendarGridView extends View {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        switch (event.getAction() & ACTION_MASK) {
+        int action = event.getAction() & ACTION_MASK;
+        if (action == MotionEvent.ACTION_DOWN && event.getY() < getHeaderHeight()) {
+            // taps into the header are handled by the parent, e.g. navigation of CalendarView
+            return false;
+        }
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        switch (action) {
             case MotionEvent.ACTION_DOWN:
+                mDownX = event.getX();
+                mDownY = event.getY();
                 mTouchEventStartTime = System.currentTimeMillis();
-                onDayCellPressed(getDayCellForCoordinates(event.getX(), event.getY()));
+                onDayCellPressed(getDayCellForCoordinates(event.getX(), event.getY(), mTouchCell));
                 return true;
             case MotionEvent.ACTION_MOVE:
-                onDayCellPressed(getDayCellForCoordinates(event.getX(), event.getY()));
+                float offset = mMonthTransition == MonthTransition.HORIZONTAL
+                        ? event.getX() - mDownX
+                        : event.getY() - mDownY;
+                if (!mAnimationHelper.dragging && canSwipe() && Math.abs(offset) > mTouchSlop) {
+                    startDrag();
+                }
+                if (mAnimationHelper.dragging) {
+                    // the slop is not a part of the drag, so the month does not jump
+                    onDrag(offset > 0 ? offset - mTouchSlop : offset + mTouchSlop);
+                } else {
+                    onDayCellPressed(getDayCellForCoordinates(event.getX(), event.getY(), mTouchCell));
+                }
                 return true;
             case MotionEvent.ACTION_UP:
-                if (System.currentTimeMillis() - mTouchEventStartTime < (long) ViewConfiguration.getLongPressTimeout()) {
-                    mTouchEventStartTime = -1;
-                    Cell cell = getDayCellForCoordinates(event.getX(), event.getY());
+                if (mAnimationHelper.dragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+                    endDrag(mMonthTransition == MonthTransition.HORIZONTAL
+                            ? mVelocityTracker.getXVelocity()
+                            : mVelocityTracker.getYVelocity());
+                } else if (System.currentTimeMillis() - mTouchEventStartTime < (long) ViewConfiguration.getLongPressTimeout()) {
+                    Cell cell = getDayCellForCoordinates(event.getX(), event.getY(), mTouchCell);
                     if (cell != null) {
                         onClick(cell);
                     }
                 }
-                onDayCellPressed(null);
+                onTouchFinished();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                if (mAnimationHelper.dragging) {
+                    endDrag(0);
+                }
+                onTouchFinished();
                 return true;
             default:
                 return super.onTouchEvent(event);
         }
     }
 
+    protected void onTouchFinished() {
+        mTouchEventStartTime = -1;
+        onDayCellPressed(null);
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
     protected void onDayCellPressed(Cell cell) {
+        if (mCurrentMonth == null) {
+            cell = null;
+        }
+        if (cell == null && mCurrentlyPressedCell == null
+                || cell != null && isDayPressed(cell.row, cell.column)) {
+            // moves inside the same cell change nothing
+            return;
+        }
         if (mCurrentlyPressedCell != null) {
-            mCurrentMonth[mCurrentlyPressedCell.row][mCurrentlyPressedCell.column].isPressed = false;
+            invalidateDayCell(mCurrentlyPressedCell.row, mCurrentlyPressedCell.column);
         }
         if (cell == null) {
             mCurrentlyPressedCell = null;
         } else {
-            mCurrentlyPressedCell = cell;
-            mCurrentMonth[cell.row][cell.column].isPressed = true;
+            // the given cell may be reused by the caller
+            mPressedCell.update(cell.row, cell.column);
+            mCurrentlyPressedCell = mPressedCell;
+            invalidateDayCell(cell.row, cell.column);
         }
-        invalidate();
     }
 
     protected void onClick(Cell cell) {
+        if (mCurrentMonth == null) {
+            return;
+        }
+        int c = mCurrentMonth.getCell(cell.row, cell.column);
         if (mOnDateClickListener != null
-                && mCurrentMonth[cell.row][cell.column].isEnabled) {
-            mOnDateClickListener.onClick(new LocalDate(
-                    mCurrentMonth[cell.row][cell.column].year,
-                    mCurrentMonth[cell.row][cell.column].month + 1,
-                    mCurrentMonth[cell.row][cell.column].day));
+                && DayCellDescription.hasState(c, DayCellDescription.STATE_ENABLED)) {
+            mOnDateClickListener.onClick(mEngine.getDate(mCurrentMonth, cell));
         }
     }
 
@@ -567,16 +1459,16 @@ class CalendarGridView extends View {
 
     //region Utils
 
-    protected boolean isDayEnabled(MonthDescriptor md, int row, int column) {
-        return mEnabledRange == null
-                || md.compareToDate(row, column, mEnabledRange.first) >= 0
-                && md.compareToDate(row, column, mEnabledRange.second) <= 0;
-    }
-
-    protected boolean isDaySelected(MonthDescriptor md, int row, int column) {
-        return mSelectedRange != null
-                && md.compareToDate(row, column, mSelectedRange.first) >= 0
-                && md.compareToDate(row, column, mSelectedRange.second) <= 0;
+    /**
+     * The header is updated here, not in onDraw: the title is laid out once per month
+     */
+    protected void onMonthChanged(LocalDate month) {
+        if (mDrawHeader) {
+            mHeader.setMonth(month);
+        }
+        if (mOnDateChangedListener != null) {
+            mOnDateChangedListener.onChanged(month);
+        }
     }
 
     protected boolean isDayPressed(int row, int column) {
@@ -585,119 +1477,144 @@ class CalendarGridView extends View {
                 && column == mCurrentlyPressedCell.column;
     }
 
-    protected Cell getDayCellForCoordinates(float x, float y) {
-        if (x > mGridSize.left && x < mGridSize.right
-                && y > mGridSize.top && y < mGridSize.bottom) {
-            float cX = 0, cY = 0;
-            int row = -1, col = -1; // it will be always incremented at least ones
-
-            while (cY < y) {
-                cY += mDayCellSize.height() + mCellSpacing;
-                row++;
-            }
-            while (cX < x) {
-                cX += mDayCellSize.width() + mCellSpacing;
-                col++;
-            }
-
-            return new Cell(row, col);
-        } else {
-            return null;
-        }
+    protected void getDayCellArea(int row, int column, Rect target) {
+        target.set(
+                mGeometry.getColumnLeft(column),
+                mGeometry.getRowTop(row),
+                mGeometry.getColumnRight(column),
+                mGeometry.getRowBottom(row));
     }
 
-    protected int[] getStatesAsSet(boolean isEnabled, boolean isSelected, boolean isPressed) {
-        int size = 0;
-        if (isPressed) size++;
-        if (isSelected) size++;
-        if (isEnabled) size++;
-        int[] r = new int[size];
-        int offset = 0;
-
-        if (isPressed) {
-            r[offset++] = android.R.attr.state_pressed;
-        }
-        if (isSelected) {
-            r[offset++] = android.R.attr.state_selected;
-        }
-        if (isEnabled) {
-            r[offset] = android.R.attr.state_enabled;
+    /**
+     * Repaints only the given cell. During the animation all is repainted in any case.
+     */
+    protected void invalidateDayCell(int row, int column) {
+        if (mAnimationHelper.active) {
+            return;
         }
-
-        return r;
+        getDayCellArea(row, column, mDamagedArea);
+        mDamagedArea.offset(0, getHeaderHeight());
+        invalidate(mDamagedArea);
     }
 
-    protected int getTextColorForState(ColorStateList list, int[] states) {
-        return list.getColorForState(
-                states,
-                list.getDefaultColor());
+    /**
+     * Ranges keep the meaning they had before DateSet: a null end is today
+     * and a reversed range contains no days, DateSet.of would throw for both
+     */
+    protected static DateSet toDateSet(LocalDate startIncluding, LocalDate endIncluding) {
+        LocalDate start = startIncluding != null ? startIncluding : LocalDate.now();
+        LocalDate end = endIncluding != null ? endIncluding : LocalDate.now();
+        return end.isBefore(start) ? DateSet.EMPTY : DateSet.of(start, end);
     }
 
-    protected void drawableToBitmap(Drawable drawable, Bitmap target) {
-//        drawable.setState(new int[] { android.R.attr.state_selected });
-
-        Canvas canvas = new Canvas(target);
-        drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-        drawable.draw(canvas);
+    /**
+     * @param target reusable cell to write the result into
+     * @return target or null if no cell is hit
+     */
+    protected Cell getDayCellForCoordinates(float x, float y, Cell target) {
+        return mEngine.getCellAt(x, y - getHeaderHeight(), target) ? target : null;
     }
 
     //endregion
 
 
-    //region CellDescription generator and updater
-
-    protected DayCellDescription[][] createDefaultDayCellDescriptions(MonthDescriptor mdh) {
-        DayCellDescription[][] r = new DayCellDescription[WEEKS_TO_SHOW][DAYS_IN_WEEK];
-
-        DayCellDescription c;
-        int day;
-        for (int row = 0; row < WEEKS_TO_SHOW; row++) {
-            for (int col = 0; col < DAYS_IN_WEEK; col++) {
-                day = mdh.getDayAt(row, col);
-                c = new DayCellDescription();
-                if (day < 32 && row < 1 && day > 10) { // it is previous month
-                    mdh.previousMonth();
-                    c.year = mdh.getYear();
-                    c.month = mdh.getMonth();
-                    c.day = day;
-                    c.dayStyle = mPreviousMonthDayStyle;
-                    mdh.nextMonth();
-                } else if (day < 10 && row > 3) { // it is next month
-                    mdh.nextMonth();
-                    c.year = mdh.getYear();
-                    c.month = mdh.getMonth();
-                    c.day = day;
-                    c.dayStyle = mNextMonthDayStyle;
-                    mdh.previousMonth();
-                } else { // it is this month
-                    c.year = mdh.getYear();
-                    c.month = mdh.getMonth();
-                    c.day = day;
-                    if (mdh.compareToDate(row, col, mToday) == 0) {
-                        c.dayStyle = mTodayDayStyle;
-                    } else {
-                        c.dayStyle = mThisMonthDayStyle;
+    //region Layout updater
+
+    /**
+     * Brings the current month up to date with the ranges and events
+     * and invalidates only the cells which states or events have been changed
+     */
+    protected void updateEnabledSelectedMonthParams() {
+        // a null month will be up to date when it is delivered
+        boolean currentChanged = false;
+        if (mCurrentMonth != null) {
+            MonthLayout updated = mEngine.updateLayout(mCurrentMonth);
+            if (updated != mCurrentMonth) {
+                currentChanged = true;
+                long changed = mCurrentMonth.getChangedCells(updated);
+                mCurrentMonth = updated;
+                for (int i = 0; changed != 0; i++, changed >>>= 1) {
+                    if ((changed & 1) != 0) {
+                        invalidateDayCell(i / DAYS_IN_WEEK, i % DAYS_IN_WEEK);
                     }
                 }
-                c.isEnabled = isDayEnabled(mdh, row, col);
-                c.isSelected = isDaySelected(mdh, row, col);
-                c.isPressed = isDayPressed(row, col);
-
-                r[row][col] = c;
             }
         }
+        updateAnimationMonths(currentChanged);
+    }
 
-        return r;
+    /**
+     * A transition in progress must not show the months as they were before the change:
+     * its months are updated and its snapshots are drawn again
+     * @param currentChanged the current month, a part of the snapshots, was changed
+     */
+    protected void updateAnimationMonths(boolean currentChanged) {
+        AnimationHelper h = mAnimationHelper;
+        if (!h.active) {
+            return;
+        }
+        boolean changed = currentChanged;
+        if (h.month != null) {
+            MonthLayout updated = mEngine.updateLayout(h.month);
+            changed |= updated != h.month;
+            // the neighbour shown by a drag is the same instance as one of the drag months
+            if (h.month == h.dragPreviousMonth) {
+                h.dragPreviousMonth = updated;
+            } else if (h.month == h.dragNextMonth) {
+                h.dragNextMonth = updated;
+            }
+            h.month = updated;
+        }
+        if (h.dragPreviousMonth != null) {
+            h.dragPreviousMonth = mEngine.updateLayout(h.dragPreviousMonth);
+        }
+        if (h.dragNextMonth != null) {
+            h.dragNextMonth = mEngine.updateLayout(h.dragNextMonth);
+        }
+        if (changed && h.snapshots) {
+            h.snapshots = prepareAnimationSnapshots();
+        }
+        invalidate();
     }
 
-    protected void updateEnabledSelectedMonthParams() {
-        for (int row = 0; row < WEEKS_TO_SHOW; row++) {
-            for (int col = 0; col < DAYS_IN_WEEK; col++) {
-                mCurrentMonth[row][col].isEnabled = isDayEnabled(mCurrentMonthDescriptor, row, col);
-                mCurrentMonth[row][col].isSelected = isDaySelected(mCurrentMonthDescriptor, row, col);
-                mCurrentMonth[row][col].isPressed = isDayPressed(row, col);
+    protected void removePendingEvent(CalendarEvent event) {
+        // an event added during this frame is just forgotten
+        for (int i = 0; i < mPendingAddedEvents.size(); i++) {
+            if (mPendingAddedEvents.get(i) == event) {
+                mPendingAddedEvents.remove(i);
+                return;
             }
         }
+        mPendingRemovedEvents.add(event);
+    }
+
+    protected void scheduleEventChanges() {
+        if (!mEventChangesScheduled) {
+            mEventChangesScheduled = true;
+            post(mApplyEventChanges);
+        }
+    }
+
+    /**
+     * All changes collected during the frame are applied in one pass
+     */
+    protected void applyEventChanges() {
+        mEventChangesScheduled = false;
+        if (mPendingAddedEvents.isEmpty() && mPendingRemovedEvents.isEmpty()) {
+            return;
+        }
+        mEngine.changeEvents(mPendingAddedEvents, mPendingRemovedEvents);
+        mPendingAddedEvents.clear();
+        mPendingRemovedEvents.clear();
+
+        updateEnabledSelectedMonthParams();
+        // the ring is not rebuilt, prepared months are just updated
+        if (mPreviousMonth != null) {
+            mPreviousMonth = mEngine.updateLayout(mPreviousMonth);
+        }
+        if (mNextMonth != null) {
+            mNextMonth = mEngine.updateLayout(mNextMonth);
+        }
     }
 
     //endregion
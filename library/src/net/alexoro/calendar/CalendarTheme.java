@@ -0,0 +1,206 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import org.joda.time.LocalDate;
+
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Resources shared by all calendars of a (Context theme, locale): day styles with their drawables,
+ * backgrounds atlases, names of weekdays, titles of months and arrows of the header.
+ * They are resolved once, so an additional calendar costs only its own paints and layouts.
+ * Everything here must be treated as immutable and used from the UI thread only.
+ */
+class CalendarTheme {
+
+    static class AtlasHolder {
+        public CellBackgroundAtlas atlas;
+        public int width;
+        public int height;
+        public int references;
+    }
+
+    private static final int SWATCH_SIZE = 16;
+
+    // weak keys: a theme of a destroyed activity must not be retained
+    private static final Map<Resources.Theme, CalendarTheme> THEMES = new WeakHashMap<Resources.Theme, CalendarTheme>();
+
+    private final Locale mLocale;
+    private final boolean mRtl;
+    private final DisplayMetrics mDisplayMetrics;
+    private final DayStyle[] mDayStyles;
+    private final String[] mShortWeekdays;
+    private final SimpleDateFormat mMonthFormat;
+    private final Map<Integer, String> mMonthTitles;
+    private final Drawable mPreviousArrow;
+    private final Drawable mNextArrow;
+    private final List<AtlasHolder> mAtlases;
+    private int[] mSwatches;
+
+    private CalendarTheme(Resources res, Locale locale) {
+        mLocale = locale;
+        mRtl = isRtl(locale);
+        mDisplayMetrics = res.getDisplayMetrics();
+        mDayStyles = MonthRenderer.createDefaultStyles(res);
+        mShortWeekdays = new DateFormatSymbols(locale).getShortWeekdays();
+        mMonthFormat = new SimpleDateFormat("LLLL yyyy", locale);
+        mMonthTitles = new HashMap<Integer, String>();
+        mPreviousArrow = res.getDrawable(R.drawable.nac__arrow_left);
+        mNextArrow = res.getDrawable(R.drawable.nac__arrow_right);
+        mAtlases = new ArrayList<AtlasHolder>();
+        mSwatches = null;
+    }
+
+    public static CalendarTheme get(Context context) {
+        Resources.Theme key = context.getTheme();
+        Locale locale = Locale.getDefault();
+        CalendarTheme r = THEMES.get(key);
+        if (r == null || !r.mLocale.equals(locale)) {
+            r = new CalendarTheme(context.getResources(), locale);
+            THEMES.put(key, r);
+        }
+        return r;
+    }
+
+    /**
+     * The layout direction of views is API 17, so it is taken from the script of the locale name
+     */
+    private static boolean isRtl(Locale locale) {
+        String name = locale.getDisplayName(locale);
+        if (name.length() == 0) {
+            return false;
+        }
+        byte directionality = Character.getDirectionality(name.charAt(0));
+        return directionality == Character.DIRECTIONALITY_RIGHT_TO_LEFT
+                || directionality == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC;
+    }
+
+    /**
+     * Columns of days go from right to left for this locale
+     */
+    public boolean isRtl() {
+        return mRtl;
+    }
+
+    /**
+     * Default sizes of the library are in dp and sp, they are scaled by it
+     */
+    public DisplayMetrics getDisplayMetrics() {
+        return mDisplayMetrics;
+    }
+
+    /**
+     * @return index in this array is DayStyle.index
+     */
+    public DayStyle[] getDayStyles() {
+        return mDayStyles;
+    }
+
+    /**
+     * @param dayOfWeek in terms of java.util.Calendar
+     */
+    public String getShortWeekday(int dayOfWeek) {
+        return mShortWeekdays[dayOfWeek];
+    }
+
+    /**
+     * Titles are formatted once, navigation back and forth does not format them again
+     * @param month 1-based, as in LocalDate
+     */
+    public String getMonthTitle(int year, int month) {
+        Integer key = year * 12 + month - 1;
+        String r = mMonthTitles.get(key);
+        if (r == null) {
+            r = mMonthFormat.format(new LocalDate(year, month, 1).toDate());
+            mMonthTitles.put(key, r);
+        }
+        return r;
+    }
+
+    /**
+     * The drawable is shared, its bounds must be set before each draw
+     */
+    public Drawable getPreviousArrow() {
+        return mPreviousArrow;
+    }
+
+    /**
+     * The drawable is shared, its bounds must be set before each draw
+     */
+    public Drawable getNextArrow() {
+        return mNextArrow;
+    }
+
+    /**
+     * Flat colors of backgrounds for compact cells: the center of each drawable, rendered once.
+     * @return index is DayStyle.index * DayCellDescription.STATES_COUNT + states
+     */
+    public int[] getSwatches() {
+        if (mSwatches != null) {
+            return mSwatches;
+        }
+        int[] r = new int[mDayStyles.length * DayCellDescription.STATES_COUNT];
+        Bitmap bitmap = Bitmap.createBitmap(SWATCH_SIZE, SWATCH_SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (DayStyle style : mDayStyles) {
+            style.drawable.setBounds(0, 0, SWATCH_SIZE, SWATCH_SIZE);
+            for (int states = 0; states < DayCellDescription.STATES_COUNT; states++) {
+                bitmap.eraseColor(0);
+                style.drawable.setState(DayStyle.getStatesAsSet(states));
+                style.drawable.draw(canvas);
+                r[style.index * DayCellDescription.STATES_COUNT + states] = bitmap.getPixel(SWATCH_SIZE / 2, SWATCH_SIZE / 2);
+            }
+        }
+        bitmap.recycle();
+        mSwatches = r;
+        return r;
+    }
+
+    /**
+     * Atlases are shared by all calendars with the same cell size.
+     * Each acquired atlas must be released, the bitmap is recycled when nobody uses it.
+     */
+    public CellBackgroundAtlas acquireAtlas(int width, int height) {
+        for (AtlasHolder h : mAtlases) {
+            if (h.width == width && h.height == height) {
+                h.references++;
+                return h.atlas;
+            }
+        }
+        AtlasHolder h = new AtlasHolder();
+        h.atlas = new CellBackgroundAtlas();
+        h.atlas.setStyles(mDayStyles);
+        h.atlas.setCellSize(width, height);
+        h.width = width;
+        h.height = height;
+        h.references = 1;
+        mAtlases.add(h);
+        return h.atlas;
+    }
+
+    public void releaseAtlas(CellBackgroundAtlas atlas) {
+        for (int i = 0; i < mAtlases.size(); i++) {
+            AtlasHolder h = mAtlases.get(i);
+            if (h.atlas == atlas) {
+                if (--h.references == 0) {
+                    h.atlas.recycle();
+                    mAtlases.remove(i);
+                }
+                return;
+            }
+        }
+    }
+
+}
@@ -1,20 +1,19 @@
 package net.alexoro.calendar;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Pair;
 import android.view.*;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
 
-import java.text.DateFormatSymbols;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Locale;
+import java.util.Collection;
 
 /**
  * User: UAS
@@ -34,12 +33,13 @@ public class CalendarView extends LinearLayout {
     private CalendarGridView vGrid;
 
     private LocalDate mMonthToShow;
-    private Pair<LocalDate, LocalDate> mEnabledRange;
     private SelectionType mSelectionType;
     private boolean mAllowMonthChangeByUi;
+    private RenderMode mRenderMode;
+    private boolean mDrawHeader;
 
     private long mTouchEventStartTime;
-    private SimpleDateFormat mMonthFormat;
+    private CalendarTheme mTheme;
     private OnDateChangedListener mUserOnDateChangedListener;
     private OnDateClickListener mUserOnDateClickListener;
 
@@ -50,15 +50,21 @@ public class CalendarView extends LinearLayout {
 
     public CalendarView(Context context, AttributeSet attrs) {
         super(context, attrs);
-        if (Build.VERSION.SDK_INT >= 11) {
-            setLayerType(LAYER_TYPE_SOFTWARE, null);
+
+        RenderMode renderMode = RenderMode.SOFTWARE;
+        mDrawHeader = false;
+        if (attrs != null) {
+            TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.CalendarView);
+            renderMode = RenderMode.values()[a.getInt(R.styleable.CalendarView_nac__renderMode, 0)];
+            mDrawHeader = a.getBoolean(R.styleable.CalendarView_nac__drawHeader, false);
+            a.recycle();
         }
+        setRenderMode(renderMode);
 
         mMonthToShow = new LocalDate();
-        mEnabledRange = new Pair<LocalDate, LocalDate>(null, null);
         mSelectionType = SelectionType.NONE;
         mTouchEventStartTime = -1L;
-        mMonthFormat = new SimpleDateFormat("LLLL yyyy");
+        mTheme = CalendarTheme.get(context);
 
         setOrientation(VERTICAL);
         initUi();
@@ -70,33 +76,63 @@ public class CalendarView extends LinearLayout {
     }
 
     protected void initUi() {
-        LayoutInflater mInflater = LayoutInflater.from(getContext());
-        mInflater.inflate(R.layout.nac__header, this, true);
-
-        vMonthName = (TextView) findViewById(R.id.month_name);
-        vDaysGroup = (LinearLayout) findViewById(R.id.days);
-
         vGrid = new CalendarGridView(getContext());
         vGrid.setLayoutParams(new LayoutParams(
                 ViewGroup.LayoutParams.WRAP_CONTENT,
                 ViewGroup.LayoutParams.WRAP_CONTENT
         ));
-        addView(vGrid);
 
-        int day = Calendar.getInstance().getFirstDayOfWeek();
-        String[] dayNames = new DateFormatSymbols(Locale.getDefault()).getShortWeekdays();
+        if (mDrawHeader) {
+            // the title and weekdays are drawn by the grid, no views are inflated
+            vMonthName = null;
+            vDaysGroup = null;
+            vGrid.setDrawHeader(true);
+            addView(vGrid);
+            return;
+        }
+
+        LayoutInflater mInflater = LayoutInflater.from(getContext());
+        mInflater.inflate(R.layout.nac__header, this, true);
+
+        vMonthName = (TextView) findViewById(R.id.month_name);
+        vDaysGroup = (LinearLayout) findViewById(R.id.days);
+        addView(vGrid);
 
         for (int i = 0; i < 7; i++) {
             TextView tv = (TextView) mInflater.inflate(R.layout.nac__day, vDaysGroup, false);
             tv.setLayoutParams(new LayoutParams(
                     0, ViewGroup.LayoutParams.WRAP_CONTENT, 1));
             vDaysGroup.addView(tv);
+        }
+        updateWeekdayLabels();
+    }
 
-            if (day == 8) {
-                day = 1;
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        updateWeekdayLabels();
+    }
+
+    /**
+     * Names follow the columns of the grid. The LinearLayout of names is mirrored by itself
+     * only on API 17+ with RTL support, so its real order is taken from the positions of the names.
+     */
+    protected void updateWeekdayLabels() {
+        if (vDaysGroup == null) {
+            return;
+        }
+        int count = vDaysGroup.getChildCount();
+        boolean reversed = count > 1
+                && vDaysGroup.getChildAt(0).getLeft() > vDaysGroup.getChildAt(count - 1).getLeft();
+        int firstDay = Calendar.getInstance().getFirstDayOfWeek();
+        for (int i = 0; i < count; i++) {
+            int position = reversed ? count - 1 - i : i;
+            int column = vGrid.isMirrored() ? count - 1 - position : position;
+            String name = mTheme.getShortWeekday((firstDay - 1 + column) % 7 + 1);
+            TextView tv = (TextView) vDaysGroup.getChildAt(i);
+            if (!TextUtils.equals(name, tv.getText())) {
+                tv.setText(name);
             }
-            tv.setText(dayNames[day]);
-            day++;
         }
     }
 
@@ -114,17 +150,58 @@ public class CalendarView extends LinearLayout {
         return mAllowMonthChangeByUi;
     }
 
+    /**
+     * Can be set from xml too: nac__renderMode="software|hardware"
+     */
+    public void setRenderMode(RenderMode renderMode) {
+        mRenderMode = renderMode;
+        if (Build.VERSION.SDK_INT >= 11) {
+            setLayerType(
+                    renderMode == RenderMode.SOFTWARE ? LAYER_TYPE_SOFTWARE : LAYER_TYPE_NONE,
+                    null);
+        }
+    }
+
+    public RenderMode getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * See CalendarGridView.setMirrored
+     */
+    public void setMirrored(boolean mirrored) {
+        vGrid.setMirrored(mirrored);
+        updateWeekdayLabels();
+    }
+
+    public boolean isMirrored() {
+        return vGrid.isMirrored();
+    }
+
+    /**
+     * Can be set from xml only: nac__drawHeader="true" draws the header by the grid instead of views
+     */
+    public boolean isDrawHeader() {
+        return mDrawHeader;
+    }
+
 
     protected void updateEnabledRange() {
+        // months can be swiped only where arrows are shown
+        vGrid.setSwipeEnabled(mAllowMonthChangeByUi);
+        if (vMonthName == null) {
+            vGrid.setHeaderArrows(
+                    mAllowMonthChangeByUi && vGrid.getLayoutEngine().hasPreviousMonth(mMonthToShow),
+                    mAllowMonthChangeByUi && vGrid.getLayoutEngine().hasNextMonth(mMonthToShow));
+            return;
+        }
         if (mAllowMonthChangeByUi) {
             Drawable transparent = getResources().getDrawable(R.drawable.nac__arrow_transparent);
             Drawable left = transparent, right = transparent;
-            if (mEnabledRange.first != null
-                    && compareByMonth(mMonthToShow.minusMonths(1), mEnabledRange.first) >= 0) {
+            if (vGrid.getLayoutEngine().hasPreviousMonth(mMonthToShow)) {
                 left = getResources().getDrawable(R.drawable.nac__arrow_left);
             }
-            if (mEnabledRange.second != null
-                    && compareByMonth(mMonthToShow.plusMonths(1), mEnabledRange.second) <= 0) {
+            if (vGrid.getLayoutEngine().hasNextMonth(mMonthToShow)) {
                 right = getResources().getDrawable(R.drawable.nac__arrow_right);
             }
             vMonthName.setCompoundDrawablesWithIntrinsicBounds(left, null, right, null);
@@ -134,8 +211,12 @@ public class CalendarView extends LinearLayout {
     }
 
     protected void updateMonthName() {
+        if (vMonthName == null) {
+            // the grid updates its drawn header itself
+            return;
+        }
         vMonthName.setText(
-                mMonthFormat.format(mMonthToShow.toDate()));
+                mTheme.getMonthTitle(mMonthToShow.getYear(), mMonthToShow.getMonthOfYear()));
     }
 
     @Override
@@ -159,23 +240,15 @@ public class CalendarView extends LinearLayout {
         int width = getWidth();
         if (x < width/3
                 && mAllowMonthChangeByUi
-                && mEnabledRange.first != null
-                && compareByMonth(mMonthToShow.minusMonths(1), mEnabledRange.first) >= 0) {
+                && vGrid.getLayoutEngine().hasPreviousMonth(vGrid.getTargetMonth())) {
             previousMonth();
         } else if (x > width*2/3
                 && mAllowMonthChangeByUi
-                && mEnabledRange.second != null
-                && compareByMonth(mMonthToShow.plusMonths(1), mEnabledRange.second) <= 0) {
+                && vGrid.getLayoutEngine().hasNextMonth(vGrid.getTargetMonth())) {
             nextMonth();
         }
     }
 
-    protected int compareByMonth(LocalDate d1, LocalDate d2) {
-        d1 = new LocalDate(d1.getYear(), d1.getMonthOfYear(), 1);
-        d2 = new LocalDate(d2.getYear(), d2.getMonthOfYear(), 1);
-        return d1.compareTo(d2);
-    }
-
     class OnDateChanged implements OnDateChangedListener {
         @Override
         public void onChanged(LocalDate month) {
@@ -247,10 +320,10 @@ public class CalendarView extends LinearLayout {
 
     //region Facade methods with overriding
 
+    /**
+     * See CalendarGridView.setEnabledRange
+     */
     public void setEnabledRange(LocalDate startIncluding, LocalDate endIncluding) {
-        mEnabledRange = new Pair<LocalDate, LocalDate>(
-                startIncluding,
-                endIncluding);
         vGrid.setEnabledRange(startIncluding, endIncluding);
         updateEnabledRange();
     }
@@ -259,6 +332,15 @@ public class CalendarView extends LinearLayout {
         return vGrid.getEnabledRangeStart();
     }
 
+    public void setEnabledDates(DateSet dates) {
+        vGrid.setEnabledDates(dates);
+        updateEnabledRange();
+    }
+
+    public DateSet getEnabledDates() {
+        return vGrid.getEnabledDates();
+    }
+
     public OnDateClickListener getOnDateClickListener() {
         return mUserOnDateClickListener;
     }
@@ -284,6 +366,17 @@ public class CalendarView extends LinearLayout {
         vGrid.setDayCellSize(width, height);
     }
 
+    /**
+     * See CalendarGridView.setCompactCellSize
+     */
+    public void setCompactCellSize(int size) {
+        vGrid.setCompactCellSize(size);
+    }
+
+    public int getCompactCellSize() {
+        return vGrid.getCompactCellSize();
+    }
+
     public int getDayCellWidth() {
         return vGrid.getDayCellWidth();
     }
@@ -300,14 +393,33 @@ public class CalendarView extends LinearLayout {
         return vGrid.getMonthTransition();
     }
 
+    public void setSnapshotTransition(boolean enabled) {
+        vGrid.setSnapshotTransition(enabled);
+    }
+
+    public boolean isSnapshotTransition() {
+        return vGrid.isSnapshotTransition();
+    }
+
     public LocalDate getEnabledRangeEnd() {
         return vGrid.getEnabledRangeEnd();
     }
 
+    /**
+     * See CalendarGridView.setSelectedRange
+     */
     public void setSelectedRange(LocalDate startIncluding, LocalDate endIncluding) {
         vGrid.setSelectedRange(startIncluding, endIncluding);
     }
 
+    public void setSelectedDates(DateSet dates) {
+        vGrid.setSelectedDates(dates);
+    }
+
+    public DateSet getSelectedDates() {
+        return vGrid.getSelectedDates();
+    }
+
     public LocalDate getSelectedRangeStart() {
         return vGrid.getSelectedRangeStart();
     }
@@ -316,6 +428,53 @@ public class CalendarView extends LinearLayout {
         return vGrid.getSelectedRangeEnd();
     }
 
+    public void setEvents(Collection<CalendarEvent> events) {
+        vGrid.setEvents(events);
+    }
+
+    public void addEvents(Collection<CalendarEvent> events) {
+        vGrid.addEvents(events);
+    }
+
+    public void addEvent(CalendarEvent event) {
+        vGrid.addEvent(event);
+    }
+
+    public void removeEvents(Collection<CalendarEvent> events) {
+        vGrid.removeEvents(events);
+    }
+
+    public void removeEvent(CalendarEvent event) {
+        vGrid.removeEvent(event);
+    }
+
+    public void updateEvent(CalendarEvent oldEvent, CalendarEvent newEvent) {
+        vGrid.updateEvent(oldEvent, newEvent);
+    }
+
+    public void setDayDecorator(DayDecorator decorator) {
+        vGrid.setDayDecorator(decorator);
+    }
+
+    public DayDecorator getDayDecorator() {
+        return vGrid.getDayDecorator();
+    }
+
+    /**
+     * Frames of month transitions which were late because the UI thread was busy
+     */
+    public int getDroppedFrameCount() {
+        return vGrid.getDroppedFrameCount();
+    }
+
+    public int getAnimationFrameCount() {
+        return vGrid.getAnimationFrameCount();
+    }
+
+    public void resetFrameCounters() {
+        vGrid.resetFrameCounters();
+    }
+
     public void nextMonth() {
         vGrid.nextMonth();
     }
@@ -328,6 +487,13 @@ public class CalendarView extends LinearLayout {
         vGrid.show(month);
     }
 
+    /**
+     * Does not block the UI thread, see CalendarGridView.showAsync
+     */
+    public void showAsync(LocalDate month) {
+        vGrid.showAsync(month);
+    }
+
     //endregion
 
 }
\ No newline at end of file
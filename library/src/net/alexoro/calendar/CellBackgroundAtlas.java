@@ -0,0 +1,101 @@
+package net.alexoro.calendar;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.StateListDrawable;
+
+/**
+ * Pre-rendered backgrounds of day cells.
+ * Every (DayStyle, states) pair is drawn only once per cell size into a single bitmap:
+ * rows are styles (by DayStyle.index), columns are the states masks (DayCellDescription.STATE_*).
+ * So drawing of a cell is just a blit from this bitmap.
+ */
+class CellBackgroundAtlas {
+
+    private DayStyle[] mStyles;
+    private int mCellWidth;
+    private int mCellHeight;
+    private Bitmap mBitmap;
+    private Rect mSource;
+    private boolean mDirty;
+
+    public CellBackgroundAtlas() {
+        mStyles = new DayStyle[0];
+        mCellWidth = 0;
+        mCellHeight = 0;
+        mBitmap = null;
+        mSource = new Rect();
+        mDirty = true;
+    }
+
+    public void setStyles(DayStyle[] styles) {
+        mStyles = styles;
+        mDirty = true;
+    }
+
+    public void setCellSize(int width, int height) {
+        if (width != mCellWidth || height != mCellHeight) {
+            mCellWidth = width;
+            mCellHeight = height;
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Must be called when the drawable of any style has been changed
+     */
+    public void invalidate() {
+        mDirty = true;
+    }
+
+    public void draw(Canvas canvas, DayStyle style, int states, Rect area, Paint paint) {
+        if (mDirty) {
+            rebuild();
+        }
+        if (mBitmap == null) {
+            return;
+        }
+        int left = states * mCellWidth;
+        int top = style.index * mCellHeight;
+        mSource.set(left, top, left + mCellWidth, top + mCellHeight);
+        canvas.drawBitmap(mBitmap, mSource, area, paint);
+    }
+
+    public void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mDirty = true;
+    }
+
+    protected void rebuild() {
+        recycle();
+        mDirty = false;
+        if (mCellWidth <= 0 || mCellHeight <= 0 || mStyles.length == 0) {
+            return;
+        }
+
+        mBitmap = Bitmap.createBitmap(
+                mCellWidth * DayCellDescription.STATES_COUNT,
+                mCellHeight * mStyles.length,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+
+        StateListDrawable drawable;
+        int left, top;
+        for (DayStyle style : mStyles) {
+            drawable = style.drawable;
+            top = style.index * mCellHeight;
+            for (int states = 0; states < DayCellDescription.STATES_COUNT; states++) {
+                left = states * mCellWidth;
+                drawable.setState(DayStyle.getStatesAsSet(states));
+                drawable.setBounds(left, top, left + mCellWidth, top + mCellHeight);
+                drawable.draw(canvas);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of days, any number of disjoint ranges and single days.
+ * It is a bitset over epoch days (see EpochDays) from the first to the last day of the set,
+ * so a membership check is O(1) and ten years take less than 500 bytes.
+ * A single range is just a special case, see of(LocalDate, LocalDate).
+ */
+public final class DateSet {
+
+    public static final DateSet EMPTY = new DateSet(0, new long[0], 0, -1);
+
+    private final int mOffset;
+    private final long[] mWords;
+
+    // epoch days, both are including; first > last for the empty set
+    final int first;
+    final int last;
+
+    private DateSet(int offset, long[] words, int first, int last) {
+        mOffset = offset;
+        mWords = words;
+        this.first = first;
+        this.last = last;
+    }
+
+    public static DateSet of(LocalDate startIncluding, LocalDate endIncluding) {
+        return ofEpochDays(EpochDays.of(startIncluding), EpochDays.of(endIncluding));
+    }
+
+    static DateSet ofEpochDays(int first, int last) {
+        return new Builder().addEpochDays(first, last).build();
+    }
+
+    public boolean contains(LocalDate date) {
+        return contains(EpochDays.of(date));
+    }
+
+    boolean contains(int epochDay) {
+        int bit = epochDay - mOffset;
+        if (bit < 0 || epochDay > last) {
+            return false;
+        }
+        return (mWords[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return first > last;
+    }
+
+    /**
+     * @return count of days in the set
+     */
+    public int size() {
+        int r = 0;
+        for (long word : mWords) {
+            r += Long.bitCount(word);
+        }
+        return r;
+    }
+
+    /**
+     * @return the earliest day of the set or null if it is empty
+     */
+    public LocalDate getFirstDate() {
+        return isEmpty() ? null : EpochDays.toLocalDate(first);
+    }
+
+    /**
+     * @return the latest day of the set or null if it is empty
+     */
+    public LocalDate getLastDate() {
+        return isEmpty() ? null : EpochDays.toLocalDate(last);
+    }
+
+
+    /**
+     * Operations are applied in the order they are called, so a removed day can be added back and vice versa.
+     * Nothing is allocated per day, so thousands of days are added in microseconds.
+     */
+    public static class Builder {
+
+        // triples: first day, last day, 1 to add or 0 to remove
+        private int[] mOperations;
+        private int mCount;
+
+        public Builder() {
+            mOperations = new int[48];
+            mCount = 0;
+        }
+
+        public Builder addDay(LocalDate date) {
+            int day = EpochDays.of(date);
+            return addEpochDays(day, day);
+        }
+
+        public Builder addDays(Collection<LocalDate> dates) {
+            for (LocalDate date : dates) {
+                addDay(date);
+            }
+            return this;
+        }
+
+        public Builder addRange(LocalDate startIncluding, LocalDate endIncluding) {
+            return addEpochDays(EpochDays.of(startIncluding), EpochDays.of(endIncluding));
+        }
+
+        public Builder removeDay(LocalDate date) {
+            int day = EpochDays.of(date);
+            return operation(day, day, 0);
+        }
+
+        public Builder removeDays(Collection<LocalDate> dates) {
+            for (LocalDate date : dates) {
+                removeDay(date);
+            }
+            return this;
+        }
+
+        public Builder removeRange(LocalDate startIncluding, LocalDate endIncluding) {
+            return operation(EpochDays.of(startIncluding), EpochDays.of(endIncluding), 0);
+        }
+
+        public DateSet build() {
+            // only added days can be in the set
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < mCount; i += 3) {
+                if (mOperations[i + 2] == 1) {
+                    min = Math.min(min, mOperations[i]);
+                    max = Math.max(max, mOperations[i + 1]);
+                }
+            }
+            if (min > max) {
+                return EMPTY;
+            }
+
+            long[] words = new long[((max - min) >>> 6) + 1];
+            int from, to;
+            for (int i = 0; i < mCount; i += 3) {
+                from = Math.max(mOperations[i], min) - min;
+                to = Math.min(mOperations[i + 1], max) - min;
+                if (from <= to) {
+                    setBits(words, from, to, mOperations[i + 2] == 1);
+                }
+            }
+
+            // removed days could cut the ends
+            int firstWord = 0;
+            while (firstWord < words.length && words[firstWord] == 0) {
+                firstWord++;
+            }
+            if (firstWord == words.length) {
+                return EMPTY;
+            }
+            int lastWord = words.length - 1;
+            while (words[lastWord] == 0) {
+                lastWord--;
+            }
+            return new DateSet(
+                    min,
+                    words,
+                    min + (firstWord << 6) + Long.numberOfTrailingZeros(words[firstWord]),
+                    min + (lastWord << 6) + 63 - Long.numberOfLeadingZeros(words[lastWord]));
+        }
+
+        Builder addEpochDays(int first, int last) {
+            return operation(first, last, 1);
+        }
+
+        private Builder operation(int first, int last, int add) {
+            if (first > last) {
+                throw new IllegalArgumentException("End of the range is before its start");
+            }
+            if (mCount == mOperations.length) {
+                int[] grown = new int[mCount * 2];
+                System.arraycopy(mOperations, 0, grown, 0, mCount);
+                mOperations = grown;
+            }
+            mOperations[mCount++] = first;
+            mOperations[mCount++] = last;
+            mOperations[mCount++] = add;
+            return this;
+        }
+
+        private static void setBits(long[] words, int from, int to, boolean value) {
+            int fromWord = from >>> 6;
+            int toWord = to >>> 6;
+            long fromMask = -1L << from;
+            long toMask = -1L >>> (63 - (to & 63));
+            for (int w = fromWord; w <= toWord; w++) {
+                long mask = -1L;
+                if (w == fromWord) {
+                    mask &= fromMask;
+                }
+                if (w == toWord) {
+                    mask &= toMask;
+                }
+                if (value) {
+                    words[w] |= mask;
+                } else {
+                    words[w] &= ~mask;
+                }
+            }
+        }
+
+    }
+
+}
@@ -1,28 +1,84 @@
 package net.alexoro.calendar;
 
-import android.content.res.ColorStateList;
-import android.graphics.drawable.StateListDrawable;
-
 /**
  * User: UAS
  * Date: 23.06.13
  * Time: 0:09
+ *
+ * Description of a day cell packed into a single int, so a month is just int[WEEKS * DAYS].
+ * Bits (from the lowest): day - 5, month (0-based) - 4, year - 14, style index - 2, states - 3.
  */
 class DayCellDescription {
 
-    public static class DayStyle {
-        public String name;
-        public float textSize;
-        public ColorStateList textColor;
-        public StateListDrawable drawable;
+    static final int STATE_ENABLED = 1;
+    static final int STATE_SELECTED = 2;
+    static final int STATE_PRESSED = 4;
+    static final int STATES_COUNT = 8;
+
+    static final int STYLE_TODAY = 0;
+    static final int STYLE_THIS_MONTH = 1;
+    static final int STYLE_PREVIOUS_MONTH = 2;
+    static final int STYLE_NEXT_MONTH = 3;
+    static final int STYLES_COUNT = 4;
+
+    private static final int DAY_SHIFT = 0;
+    private static final int DAY_MASK = 0x1F;
+    private static final int MONTH_SHIFT = 5;
+    private static final int MONTH_MASK = 0xF;
+    private static final int YEAR_SHIFT = 9;
+    private static final int YEAR_MASK = 0x3FFF;
+    private static final int STYLE_SHIFT = 23;
+    private static final int STYLE_MASK = 0x3;
+    private static final int STATES_SHIFT = 25;
+    private static final int STATES_MASK = 0x7;
+
+    private DayCellDescription() {
+    }
+
+    /**
+     * @param month 0-based
+     */
+    public static int pack(int year, int month, int day, int style, int states) {
+        return (day & DAY_MASK) << DAY_SHIFT
+                | (month & MONTH_MASK) << MONTH_SHIFT
+                | (year & YEAR_MASK) << YEAR_SHIFT
+                | (style & STYLE_MASK) << STYLE_SHIFT
+                | (states & STATES_MASK) << STATES_SHIFT;
     }
 
-    public int year;
-    public int month;
-    public int day;
-    boolean isEnabled;
-    boolean isSelected;
-    boolean isPressed;
-    public DayStyle dayStyle;
+    public static int getYear(int cell) {
+        return (cell >>> YEAR_SHIFT) & YEAR_MASK;
+    }
+
+    /**
+     * @return 0-based month
+     */
+    public static int getMonth(int cell) {
+        return (cell >>> MONTH_SHIFT) & MONTH_MASK;
+    }
+
+    public static int getDay(int cell) {
+        return (cell >>> DAY_SHIFT) & DAY_MASK;
+    }
+
+    public static int getStyle(int cell) {
+        return (cell >>> STYLE_SHIFT) & STYLE_MASK;
+    }
+
+    public static int getStates(int cell) {
+        return (cell >>> STATES_SHIFT) & STATES_MASK;
+    }
+
+    public static int setStates(int cell, int states) {
+        return cell & ~(STATES_MASK << STATES_SHIFT) | (states & STATES_MASK) << STATES_SHIFT;
+    }
+
+    public static int setState(int cell, int state, boolean value) {
+        return value ? cell | state << STATES_SHIFT : cell & ~(state << STATES_SHIFT);
+    }
+
+    public static boolean hasState(int cell, int state) {
+        return (cell & state << STATES_SHIFT) != 0;
+    }
 
 }
\ No newline at end of file
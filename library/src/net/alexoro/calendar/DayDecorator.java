@@ -0,0 +1,12 @@
+package net.alexoro.calendar;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * Draws markers of events (dots, badges and etc.) over a day cell.
+ * It is called from onDraw for the days with at least one event only, so it must not allocate objects.
+ */
+public interface DayDecorator {
+    void draw(Canvas canvas, Rect area, DayEvents events);
+}
@@ -0,0 +1,40 @@
+package net.alexoro.calendar;
+
+import java.util.AbstractList;
+
+/**
+ * Read-only events of one day. The same instance is reused for all days during drawing,
+ * so it must not be kept after DayDecorator.draw returns.
+ */
+public final class DayEvents extends AbstractList<CalendarEvent> {
+
+    private CalendarEvent[] mEvents;
+    private int mFrom;
+    private int mCount;
+
+    DayEvents() {
+        mEvents = null;
+        mFrom = 0;
+        mCount = 0;
+    }
+
+    void set(CalendarEvent[] events, int from, int count) {
+        mEvents = events;
+        mFrom = from;
+        mCount = count;
+    }
+
+    @Override
+    public CalendarEvent get(int location) {
+        if (location < 0 || location >= mCount) {
+            throw new IndexOutOfBoundsException();
+        }
+        return mEvents[mFrom + location];
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+}
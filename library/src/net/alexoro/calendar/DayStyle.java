@@ -0,0 +1,54 @@
+package net.alexoro.calendar;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.StateListDrawable;
+
+/**
+ * Look of a day cell. Index is the style index packed into cells (see DayCellDescription.STYLE_*).
+ */
+class DayStyle {
+
+    public int index;
+    public String name;
+    public float textSize;
+    public ColorStateList textColor;
+    public StateListDrawable drawable;
+
+    // state sets are interned: drawing must not allocate a new array for each cell
+    private static final int[][] STATE_SETS = new int[DayCellDescription.STATES_COUNT][];
+    static {
+        for (int i = 0; i < DayCellDescription.STATES_COUNT; i++) {
+            STATE_SETS[i] = createStatesAsSet(i);
+        }
+    }
+
+    /**
+     * @param states mask of DayCellDescription.STATE_*
+     * @return shared array, it must not be modified
+     */
+    public static int[] getStatesAsSet(int states) {
+        return STATE_SETS[states];
+    }
+
+    private static int[] createStatesAsSet(int states) {
+        int size = 0;
+        if ((states & DayCellDescription.STATE_PRESSED) != 0) size++;
+        if ((states & DayCellDescription.STATE_SELECTED) != 0) size++;
+        if ((states & DayCellDescription.STATE_ENABLED) != 0) size++;
+        int[] r = new int[size];
+        int offset = 0;
+
+        if ((states & DayCellDescription.STATE_PRESSED) != 0) {
+            r[offset++] = android.R.attr.state_pressed;
+        }
+        if ((states & DayCellDescription.STATE_SELECTED) != 0) {
+            r[offset++] = android.R.attr.state_selected;
+        }
+        if ((states & DayCellDescription.STATE_ENABLED) != 0) {
+            r[offset] = android.R.attr.state_enabled;
+        }
+
+        return r;
+    }
+
+}
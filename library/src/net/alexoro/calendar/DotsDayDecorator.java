@@ -0,0 +1,81 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.DisplayMetrics;
+
+/**
+ * Default decorator: a row of colored dots at the bottom of the cell, one per event.
+ * If there are more events than dots, their count is drawn at the top right corner.
+ */
+public class DotsDayDecorator implements DayDecorator {
+
+    // index is a count, so drawing does not format strings
+    private static final String[] COUNT_LABELS = new String[100];
+    static {
+        for (int i = 0; i < COUNT_LABELS.length; i++) {
+            COUNT_LABELS[i] = String.valueOf(i);
+        }
+    }
+
+    private Paint mDotPaint;
+    private Paint mCountPaint;
+    private float mDotRadius;
+    private float mDotSpacing;
+    private int mMaxDots;
+
+    public DotsDayDecorator(Context context) {
+        this(context.getResources().getDisplayMetrics());
+    }
+
+    /**
+     * Default look: up to 3 dots of 2.5dp radius with 2dp spacing, the count is 9sp
+     */
+    public DotsDayDecorator(DisplayMetrics dm) {
+        this(2.5f * dm.density, 2f * dm.density, 3, 9f * dm.scaledDensity, 0xFF555555);
+    }
+
+    /**
+     * Sizes are in px
+     */
+    public DotsDayDecorator(float dotRadius, float dotSpacing, int maxDots, float countTextSize, int countTextColor) {
+        mDotRadius = dotRadius;
+        mDotSpacing = dotSpacing;
+        mMaxDots = maxDots;
+
+        mDotPaint = new Paint();
+        mDotPaint.setAntiAlias(true);
+        mDotPaint.setStyle(Paint.Style.FILL);
+
+        mCountPaint = new Paint();
+        mCountPaint.setAntiAlias(true);
+        mCountPaint.setTextSize(countTextSize);
+        mCountPaint.setColor(countTextColor);
+        mCountPaint.setTextAlign(Paint.Align.RIGHT);
+    }
+
+    @Override
+    public void draw(Canvas canvas, Rect area, DayEvents events) {
+        int count = events.size();
+        int dots = Math.min(count, mMaxDots);
+        float step = mDotRadius * 2 + mDotSpacing;
+        float x = area.centerX() - (dots - 1) * step / 2;
+        float y = area.bottom - mDotRadius - mDotSpacing * 2;
+        for (int i = 0; i < dots; i++) {
+            mDotPaint.setColor(events.get(i).getColor());
+            canvas.drawCircle(x, y, mDotRadius, mDotPaint);
+            x += step;
+        }
+
+        if (count > mMaxDots) {
+            canvas.drawText(
+                    count < COUNT_LABELS.length ? COUNT_LABELS[count] : "99+",
+                    area.right - mDotSpacing,
+                    area.top + mCountPaint.getTextSize(),
+                    mCountPaint);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Dates as plain int ordinals: the number of days since 1970-01-01 (proleptic Gregorian calendar).
+ * So date comparisons are int comparisons and no objects are created.
+ */
+class EpochDays {
+
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param month 1-based
+     */
+    public static int of(int year, int month, int day) {
+        // days from civil, see http://howardhinnant.github.io/date_algorithms.html
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    public static int of(LocalDate date) {
+        return of(date.getYear(), date.getMonthOfYear(), date.getDayOfMonth());
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return new LocalDate(year, month, day);
+    }
+
+    /**
+     * @return day of week in terms of java.util.Calendar: SUNDAY = 1 ... SATURDAY = 7
+     */
+    public static int getDayOfWeek(int epochDay) {
+        // 1970-01-01 is Thursday
+        int r = (epochDay + 4) % 7;
+        if (r < 0) {
+            r += 7;
+        }
+        return r + 1;
+    }
+
+    /**
+     * @param month 1-based
+     */
+    public static int getDaysInMonth(int year, int month) {
+        if (month == 2 && isLeapYear(year)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+}
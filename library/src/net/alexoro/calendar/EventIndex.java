@@ -0,0 +1,139 @@
+package net.alexoro.calendar;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Immutable interval index of events.
+ * Events are sorted by the first day and a segment tree keeps the max last day of each subtree,
+ * so events of a range of days are found in O(log n + k) without a scan of all events.
+ */
+class EventIndex {
+
+    /**
+     * Reusable result of a query
+     */
+    static class Hits {
+        public int[] indexes = new int[16];
+        public int count;
+
+        public void add(int index) {
+            if (count == indexes.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(indexes, 0, grown, 0, count);
+                indexes = grown;
+            }
+            indexes[count++] = index;
+        }
+    }
+
+    public static final EventIndex EMPTY = new EventIndex(new CalendarEvent[0]);
+
+    static final Comparator<CalendarEvent> BY_FIRST_DAY = new Comparator<CalendarEvent>() {
+        @Override
+        public int compare(CalendarEvent lhs, CalendarEvent rhs) {
+            if (lhs.first != rhs.first) {
+                return lhs.first < rhs.first ? -1 : 1;
+            }
+            return lhs.last < rhs.last ? -1 : (lhs.last == rhs.last ? 0 : 1);
+        }
+    };
+
+    private final CalendarEvent[] mEvents;
+    private final int[] mFirstDays;
+    // node 1 is the root, children of node N are 2N and 2N + 1
+    private final int[] mMaxLastDays;
+
+    /**
+     * O(n log n), so it must not be called for each small change
+     */
+    public static EventIndex of(Collection<CalendarEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return EMPTY;
+        }
+        CalendarEvent[] array = events.toArray(new CalendarEvent[events.size()]);
+        Arrays.sort(array, BY_FIRST_DAY);
+        return new EventIndex(array);
+    }
+
+    private EventIndex(CalendarEvent[] sortedEvents) {
+        mEvents = sortedEvents;
+        mFirstDays = new int[sortedEvents.length];
+        for (int i = 0; i < sortedEvents.length; i++) {
+            mFirstDays[i] = sortedEvents[i].first;
+        }
+        mMaxLastDays = new int[Math.max(1, sortedEvents.length * 4)];
+        if (sortedEvents.length > 0) {
+            build(1, 0, sortedEvents.length);
+        }
+    }
+
+    public int size() {
+        return mEvents.length;
+    }
+
+    public boolean isEmpty() {
+        return mEvents.length == 0;
+    }
+
+    public CalendarEvent get(int index) {
+        return mEvents[index];
+    }
+
+    /**
+     * Finds events which intersect [first, last] days
+     * @param target receives indexes of the events in order of their first days, it is cleared before
+     */
+    public void query(int first, int last, Hits target) {
+        target.count = 0;
+        // only events starting not after the last day can intersect
+        int end = upperBound(last);
+        if (end > 0) {
+            collect(1, 0, mEvents.length, end, first, target);
+        }
+    }
+
+    private int build(int node, int from, int to) {
+        if (to - from == 1) {
+            mMaxLastDays[node] = mEvents[from].last;
+        } else {
+            int middle = (from + to) >>> 1;
+            mMaxLastDays[node] = Math.max(
+                    build(node * 2, from, middle),
+                    build(node * 2 + 1, middle, to));
+        }
+        return mMaxLastDays[node];
+    }
+
+    private void collect(int node, int from, int to, int end, int first, Hits target) {
+        if (from >= end || mMaxLastDays[node] < first) {
+            return;
+        }
+        if (to - from == 1) {
+            target.add(from);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        collect(node * 2, from, middle, end, first, target);
+        collect(node * 2 + 1, middle, to, end, first, target);
+    }
+
+    /**
+     * @return count of events with the first day not after the given day
+     */
+    private int upperBound(int day) {
+        int low = 0;
+        int high = mFirstDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mFirstDays[middle] <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
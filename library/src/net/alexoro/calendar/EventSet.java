@@ -0,0 +1,163 @@
+package net.alexoro.calendar;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable set of events with cheap incremental changes.
+ * It is a big base index plus small changes on top of it: an index of the added events and
+ * the removed events. Each change rebuilds only the small part, the base is rebuilt
+ * when the changes become too big, so a change costs O(log n) amortized instead of O(n log n).
+ */
+class EventSet {
+
+    public static final EventSet EMPTY = new EventSet(
+            EventIndex.EMPTY, EventIndex.EMPTY, new IdentityHashMap<CalendarEvent, Boolean>(), 0, -1, 0, -1);
+
+    private static final int MIN_CHANGES_TO_COMPACT = 64;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final EventIndex mBase;
+    private final EventIndex mAdded;
+    // events of the base which are removed, it is never changed after construction
+    private final IdentityHashMap<CalendarEvent, Boolean> mRemoved;
+
+    // version of the set this one is made from and the days touched by the change.
+    // Only the version is kept, a reference would keep all previous sets in memory.
+    private final long mVersion;
+    private final long mParentVersion;
+    private final int mChangedFirst;
+    private final int mChangedLast;
+
+    private EventSet(EventIndex base,
+                     EventIndex added,
+                     IdentityHashMap<CalendarEvent, Boolean> removed,
+                     long version,
+                     long parentVersion,
+                     int changedFirst,
+                     int changedLast) {
+        mBase = base;
+        mAdded = added;
+        mRemoved = removed;
+        mVersion = version;
+        mParentVersion = parentVersion;
+        mChangedFirst = changedFirst;
+        mChangedLast = changedLast;
+    }
+
+    /**
+     * O(n log n)
+     */
+    public static EventSet of(Collection<CalendarEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return EMPTY;
+        }
+        return new EventSet(
+                EventIndex.of(events), EventIndex.EMPTY, new IdentityHashMap<CalendarEvent, Boolean>(),
+                VERSIONS.incrementAndGet(), -1, 0, -1);
+    }
+
+    public boolean isEmpty() {
+        return mBase.isEmpty() && mAdded.isEmpty();
+    }
+
+    /**
+     * Events are compared by identity, so modification is removal of the old instance and adding of the new one.
+     * Removals are applied before additions, so an event added and removed in the same change stays added.
+     * @return new set, this one is not changed
+     */
+    public EventSet change(Collection<CalendarEvent> added, Collection<CalendarEvent> removed) {
+        int changedFirst = Integer.MAX_VALUE;
+        int changedLast = Integer.MIN_VALUE;
+
+        List<CalendarEvent> newAdded = new ArrayList<CalendarEvent>(mAdded.size() + added.size());
+        for (int i = 0; i < mAdded.size(); i++) {
+            newAdded.add(mAdded.get(i));
+        }
+        IdentityHashMap<CalendarEvent, Boolean> newRemoved = new IdentityHashMap<CalendarEvent, Boolean>(mRemoved);
+        for (CalendarEvent event : removed) {
+            if (!removeByIdentity(newAdded, event)) {
+                newRemoved.put(event, Boolean.TRUE);
+            }
+            changedFirst = Math.min(changedFirst, event.first);
+            changedLast = Math.max(changedLast, event.last);
+        }
+        for (CalendarEvent event : added) {
+            newAdded.add(event);
+            changedFirst = Math.min(changedFirst, event.first);
+            changedLast = Math.max(changedLast, event.last);
+        }
+
+        // each change copies the small part, so it is kept about sqrt(n) to balance it with the rebuilds
+        if (newAdded.size() + newRemoved.size() > Math.max(MIN_CHANGES_TO_COMPACT, 4 * (int) Math.sqrt(mBase.size()))) {
+            List<CalendarEvent> all = new ArrayList<CalendarEvent>(mBase.size() + newAdded.size());
+            for (int i = 0; i < mBase.size(); i++) {
+                if (!newRemoved.containsKey(mBase.get(i))) {
+                    all.add(mBase.get(i));
+                }
+            }
+            all.addAll(newAdded);
+            return new EventSet(
+                    EventIndex.of(all), EventIndex.EMPTY, new IdentityHashMap<CalendarEvent, Boolean>(),
+                    VERSIONS.incrementAndGet(), mVersion, changedFirst, changedLast);
+        }
+        return new EventSet(
+                mBase, EventIndex.of(newAdded), newRemoved,
+                VERSIONS.incrementAndGet(), mVersion, changedFirst, changedLast);
+    }
+
+    /**
+     * Cheap check, it knows only about one change. So false means "maybe changed".
+     * @return true if events of [first, last] days are surely the same in this set and in the given one
+     */
+    public boolean isSameAs(EventSet other, int first, int last) {
+        if (other == this) {
+            return true;
+        }
+        return other.mVersion == mParentVersion
+                && (mChangedFirst > last || mChangedLast < first);
+    }
+
+    /**
+     * Finds events which intersect [first, last] days
+     * @param target receives the events in order of their first days, it is cleared before
+     */
+    public void query(int first, int last, List<CalendarEvent> target) {
+        target.clear();
+        EventIndex.Hits baseHits = new EventIndex.Hits();
+        EventIndex.Hits addedHits = new EventIndex.Hits();
+        mBase.query(first, last, baseHits);
+        mAdded.query(first, last, addedHits);
+
+        // merge of two sorted lists
+        int i = 0, j = 0;
+        CalendarEvent event;
+        while (i < baseHits.count || j < addedHits.count) {
+            if (j == addedHits.count
+                    || i < baseHits.count
+                    && EventIndex.BY_FIRST_DAY.compare(
+                            mBase.get(baseHits.indexes[i]), mAdded.get(addedHits.indexes[j])) <= 0) {
+                event = mBase.get(baseHits.indexes[i++]);
+                if (mRemoved.isEmpty() || !mRemoved.containsKey(event)) {
+                    target.add(event);
+                }
+            } else {
+                target.add(mAdded.get(addedHits.indexes[j++]));
+            }
+        }
+    }
+
+    private static boolean removeByIdentity(List<CalendarEvent> list, CalendarEvent event) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == event) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,122 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Display;
+import android.view.WindowManager;
+import android.view.animation.AnimationUtils;
+
+/**
+ * Frame clock of animations. It ticks on the UI thread at the refresh rate of the display,
+ * so the state of an animation is advanced by frame timestamps out of onDraw, and onDraw only reads it.
+ * Choreographer would be better, but it is API 16 and the library supports API 8:
+ * the ticks are aligned with the previous frame time instead of vsync.
+ * A late tick is counted as dropped frames.
+ */
+class FrameAnimator {
+
+    interface Callback {
+        /**
+         * @param frameTime in terms of AnimationUtils.currentAnimationTimeMillis()
+         * @return false to stop ticking
+         */
+        boolean onFrame(long frameTime);
+    }
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final Handler mHandler;
+    private final Runnable mFrame;
+    private final Callback mCallback;
+    private final long mFrameInterval;
+    private boolean mRunning;
+    private long mLastFrameTime;
+    private int mFrameCount;
+    private int mDroppedFrameCount;
+
+    public FrameAnimator(Context context, Callback callback) {
+        mHandler = new Handler(Looper.getMainLooper());
+        mFrame = new Runnable() {
+            @Override
+            public void run() {
+                doFrame();
+            }
+        };
+        mCallback = callback;
+        mFrameInterval = Math.max(1, Math.round(1000f / getRefreshRate(context)));
+        mRunning = false;
+        mFrameCount = 0;
+        mDroppedFrameCount = 0;
+    }
+
+    private static float getRefreshRate(Context context) {
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = wm != null ? wm.getDefaultDisplay() : null;
+        float r = display != null ? display.getRefreshRate() : 0f;
+        return r >= 10f ? r : DEFAULT_REFRESH_RATE;
+    }
+
+    /**
+     * The first frame is ticked one frame interval later, it does nothing if the clock is already running
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+        mHandler.postDelayed(mFrame, mFrameInterval);
+    }
+
+    public void stop() {
+        mRunning = false;
+        mHandler.removeCallbacks(mFrame);
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public long getFrameInterval() {
+        return mFrameInterval;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Frames which were late because the UI thread was busy, e.g. with a slow onDraw
+     */
+    public int getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    public void resetCounters() {
+        mFrameCount = 0;
+        mDroppedFrameCount = 0;
+    }
+
+    protected void doFrame() {
+        if (!mRunning) {
+            return;
+        }
+        long frameTime = AnimationUtils.currentAnimationTimeMillis();
+        long gap = frameTime - mLastFrameTime;
+        if (gap > mFrameInterval + mFrameInterval / 2) {
+            mDroppedFrameCount += (gap + mFrameInterval / 2) / mFrameInterval - 1;
+        }
+        mLastFrameTime = frameTime;
+        mFrameCount++;
+
+        if (!mCallback.onFrame(frameTime)) {
+            mRunning = false;
+            return;
+        }
+        // the callback time is not a part of the interval
+        long delay = mFrameInterval - (AnimationUtils.currentAnimationTimeMillis() - frameTime);
+        mHandler.postDelayed(mFrame, Math.max(0, delay));
+    }
+
+}
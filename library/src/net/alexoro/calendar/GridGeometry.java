@@ -0,0 +1,192 @@
+package net.alexoro.calendar;
+
+/**
+ * Positions of rows and columns of a month grid and hit-testing over them.
+ * Offsets are kept per row and per column, so cells are not required to be of the same size,
+ * and the columns can be mirrored for right-to-left layouts.
+ * Hit-testing is a division by the average pitch plus a correction step for non-uniform sizes,
+ * touches into spacing gutters hit nothing.
+ */
+class GridGeometry {
+
+    private final int mRows;
+    private final int mColumns;
+    private final int[] mColumnLeft;
+    private final int[] mColumnWidth;
+    private final int[] mRowTop;
+    private final int[] mRowHeight;
+    // columns from the left edge of the mirrored grid, so the mirrored hit-test is the same search
+    private final int[] mMirroredLeft;
+    private final int[] mMirroredWidth;
+    private int mWidth;
+    private int mHeight;
+    private boolean mMirrored;
+
+    public GridGeometry(int rows, int columns) {
+        mRows = rows;
+        mColumns = columns;
+        mColumnLeft = new int[columns];
+        mColumnWidth = new int[columns];
+        mRowTop = new int[rows];
+        mRowHeight = new int[rows];
+        mMirroredLeft = new int[columns];
+        mMirroredWidth = new int[columns];
+        mWidth = 0;
+        mHeight = 0;
+        mMirrored = false;
+    }
+
+    public void setUniform(int cellWidth, int cellHeight, int spacing) {
+        for (int i = 0; i < mColumns; i++) {
+            mColumnWidth[i] = cellWidth;
+        }
+        for (int i = 0; i < mRows; i++) {
+            mRowHeight[i] = cellHeight;
+        }
+        update(spacing);
+    }
+
+    /**
+     * Columns fill the width exactly: the pixels left by the division are given one by one
+     * to the first columns, so they are one pixel wider than the rest
+     */
+    public void setFitted(int width, int cellHeight, int spacing) {
+        int cells = width - spacing * (mColumns - 1);
+        int remainder = cells % mColumns;
+        for (int i = 0; i < mColumns; i++) {
+            mColumnWidth[i] = cells / mColumns + (i < remainder ? 1 : 0);
+        }
+        for (int i = 0; i < mRows; i++) {
+            mRowHeight[i] = cellHeight;
+        }
+        update(spacing);
+    }
+
+    public void setCellSizes(int[] columnWidths, int[] rowHeights, int spacing) {
+        System.arraycopy(columnWidths, 0, mColumnWidth, 0, mColumns);
+        System.arraycopy(rowHeights, 0, mRowHeight, 0, mRows);
+        update(spacing);
+    }
+
+    public void setMirrored(boolean mirrored) {
+        mMirrored = mirrored;
+    }
+
+    public boolean isMirrored() {
+        return mMirrored;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getColumnLeft(int column) {
+        if (mMirrored) {
+            return mWidth - mColumnLeft[column] - mColumnWidth[column];
+        }
+        return mColumnLeft[column];
+    }
+
+    public int getColumnRight(int column) {
+        return getColumnLeft(column) + mColumnWidth[column];
+    }
+
+    public int getRowTop(int row) {
+        return mRowTop[row];
+    }
+
+    public int getRowBottom(int row) {
+        return mRowTop[row] + mRowHeight[row];
+    }
+
+    /**
+     * @return column or -1 if x is out of the grid or in a gutter
+     */
+    public int getColumnAt(float x) {
+        if (x < 0 || x >= mWidth) {
+            return -1;
+        }
+        if (mMirrored) {
+            int i = indexAt(x, mMirroredLeft, mMirroredWidth, mColumns, mWidth);
+            return i < 0 ? -1 : mColumns - 1 - i;
+        }
+        return indexAt(x, mColumnLeft, mColumnWidth, mColumns, mWidth);
+    }
+
+    /**
+     * @return row or -1 if y is out of the grid or in a gutter
+     */
+    public int getRowAt(float y) {
+        if (y < 0 || y >= mHeight) {
+            return -1;
+        }
+        return indexAt(y, mRowTop, mRowHeight, mRows, mHeight);
+    }
+
+    /**
+     * @param target it is filled only if the cell is hit
+     * @return false if nothing is hit
+     */
+    public boolean getCellAt(float x, float y, Cell target) {
+        int row = getRowAt(y);
+        if (row < 0) {
+            return false;
+        }
+        int column = getColumnAt(x);
+        if (column < 0) {
+            return false;
+        }
+        target.update(row, column);
+        return true;
+    }
+
+    private void update(int spacing) {
+        int offset = 0;
+        for (int i = 0; i < mColumns; i++) {
+            mColumnLeft[i] = offset;
+            offset += mColumnWidth[i] + spacing;
+        }
+        mWidth = offset - spacing;
+        for (int i = 0; i < mColumns; i++) {
+            int column = mColumns - 1 - i;
+            mMirroredLeft[i] = mWidth - mColumnLeft[column] - mColumnWidth[column];
+            mMirroredWidth[i] = mColumnWidth[column];
+        }
+
+        offset = 0;
+        for (int i = 0; i < mRows; i++) {
+            mRowTop[i] = offset;
+            offset += mRowHeight[i] + spacing;
+        }
+        mHeight = offset - spacing;
+    }
+
+    private static int indexAt(float value, int[] starts, int[] sizes, int count, int total) {
+        // estimation by the average pitch, for the uniform grid it is wrong by one step at most
+        int i = (int) (value * count / total);
+        if (i >= count) {
+            i = count - 1;
+        }
+        // correction, it is a single step when sizes are (almost) the same
+        while (i > 0 && value < starts[i]) {
+            i--;
+        }
+        while (i < count - 1 && value >= starts[i + 1]) {
+            i++;
+        }
+        return value < starts[i] + sizes[i] ? i : -1;
+    }
+
+}
@@ -0,0 +1,84 @@
+package net.alexoro.calendar;
+
+/**
+ * Builds packed cells of a month (see DayCellDescription) and recalculates their states.
+ * It has no Android dependencies and no mutable state, so it can be used from any thread
+ * and measured on a plain JVM.
+ */
+class MonthCellsBuilder {
+
+    private MonthCellsBuilder() {
+    }
+
+    /**
+     * Pressed state is never set here
+     * @param enabledDates null means that all days are enabled
+     * @param selectedDates null means that nothing is selected
+     */
+    public static int[] build(MonthDescriptor md, DateSet enabledDates, DateSet selectedDates, int todayEpochDay) {
+        int rows = md.getRowsCount();
+        int columns = md.getColumnsCount();
+        int[] r = new int[rows * columns];
+
+        int direction, style, epochDay;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                epochDay = md.getEpochDay(row, col);
+                direction = md.getMonthDirection(row, col);
+                if (direction < 0) {
+                    style = DayCellDescription.STYLE_PREVIOUS_MONTH;
+                } else if (direction > 0) {
+                    style = DayCellDescription.STYLE_NEXT_MONTH;
+                } else if (epochDay == todayEpochDay) {
+                    style = DayCellDescription.STYLE_TODAY;
+                } else {
+                    style = DayCellDescription.STYLE_THIS_MONTH;
+                }
+
+                r[row * columns + col] = DayCellDescription.pack(
+                        md.getYearAt(row, col),
+                        md.getMonthAt(row, col),
+                        md.getDayAt(row, col),
+                        style,
+                        getStates(epochDay, enabledDates, selectedDates, false));
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Recalculates states of all cells in place
+     * @param pressedIndex index of the pressed cell or -1
+     * @return bit mask of the changed cells, bit N is cell N
+     */
+    public static long updateStates(int[] cells, MonthDescriptor md,
+                                    DateSet enabledDates, DateSet selectedDates, int pressedIndex) {
+        long changed = 0;
+        int epochDay = md.getFirstEpochDay();
+        int states;
+        for (int i = 0; i < cells.length; i++, epochDay++) {
+            states = getStates(epochDay, enabledDates, selectedDates, i == pressedIndex);
+            if (DayCellDescription.getStates(cells[i]) != states) {
+                cells[i] = DayCellDescription.setStates(cells[i], states);
+                changed |= 1L << i;
+            }
+        }
+        return changed;
+    }
+
+    public static int getStates(int epochDay, DateSet enabledDates, DateSet selectedDates, boolean pressed) {
+        int r = 0;
+        if (enabledDates == null || enabledDates.contains(epochDay)) {
+            r |= DayCellDescription.STATE_ENABLED;
+        }
+        if (selectedDates != null && selectedDates.contains(epochDay)) {
+            r |= DayCellDescription.STATE_SELECTED;
+        }
+        if (pressed) {
+            r |= DayCellDescription.STATE_PRESSED;
+        }
+        return r;
+    }
+
+}
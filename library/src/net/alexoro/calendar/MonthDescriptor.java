@@ -1,75 +1,169 @@
 package net.alexoro.calendar;
 
-import android.util.MonthDisplayHelper;
 import org.joda.time.LocalDate;
 
+import java.util.Calendar;
+
 /**
  * User: alex.sorokin@realweb.ru
  * Date: 20.06.13
  * Time: 15:39
+ *
+ * Immutable (so thread-safe) description of a month grid.
+ * Each cell is identified by its epoch day (see EpochDays), so all comparisons are int comparisons.
  */
-class MonthDescriptor extends MonthDisplayHelper {
+class MonthDescriptor {
+
+    private static final int ROWS = 6;
+    private static final int COLUMNS = 7;
+
+    private final int mYear;
+    private final int mMonth;
+    private final int mWeekStartDay;
+    private final int mOffset;
+    private final int mNumberOfDaysInMonth;
+    private final int mNumberOfDaysInPreviousMonth;
+    private final int mFirstEpochDay;
 
+    /**
+     * @param month 0-based, as in java.util.Calendar
+     * @param weekStartDay in terms of java.util.Calendar
+     */
     public MonthDescriptor(int year, int month, int weekStartDay) {
-        super(year, month, weekStartDay);
+        mYear = year;
+        mMonth = month;
+        mWeekStartDay = weekStartDay;
+
+        int firstOfMonth = EpochDays.of(year, month + 1, 1);
+        int offset = EpochDays.getDayOfWeek(firstOfMonth) - weekStartDay;
+        if (offset < 0) {
+            offset += COLUMNS;
+        }
+        mOffset = offset;
+        mNumberOfDaysInMonth = EpochDays.getDaysInMonth(year, month + 1);
+        mNumberOfDaysInPreviousMonth = month == 0
+                ? EpochDays.getDaysInMonth(year - 1, 12)
+                : EpochDays.getDaysInMonth(year, month);
+        mFirstEpochDay = firstOfMonth - offset;
     }
 
     public MonthDescriptor(int year, int month) {
-        super(year, month);
+        this(year, month, Calendar.SUNDAY);
+    }
+
+    public MonthDescriptor previousMonth() {
+        if (mMonth == 0) {
+            return new MonthDescriptor(mYear - 1, 11, mWeekStartDay);
+        }
+        return new MonthDescriptor(mYear, mMonth - 1, mWeekStartDay);
+    }
+
+    public MonthDescriptor nextMonth() {
+        if (mMonth == 11) {
+            return new MonthDescriptor(mYear + 1, 0, mWeekStartDay);
+        }
+        return new MonthDescriptor(mYear, mMonth + 1, mWeekStartDay);
+    }
+
+    public int getYear() {
+        return mYear;
+    }
+
+    /**
+     * @return 0-based month
+     */
+    public int getMonth() {
+        return mMonth;
+    }
+
+    public int getWeekStartDay() {
+        return mWeekStartDay;
+    }
+
+    /**
+     * @return count of days of the previous month in the first row
+     */
+    public int getOffset() {
+        return mOffset;
+    }
+
+    public int getNumberOfDaysInMonth() {
+        return mNumberOfDaysInMonth;
     }
 
     public int getRowsCount() {
-        return 6;
+        return ROWS;
     }
 
     public int getColumnsCount() {
-        return 7;
+        return COLUMNS;
     }
 
-    public LocalDate getLocalDate(int row, int column) {
-        LocalDate r;
-        int day = getDayAt(row, column);
-
-        if (isWithinCurrentMonth(row, column)) {
-            r = new LocalDate(getYear(), getMonth() + 1, day);
-        } else {
-            if (row < 2) {
-                previousMonth();
-                r = new LocalDate(getYear(), getMonth() + 1, day);
-                nextMonth();
-            } else {
-                nextMonth();
-                r = new LocalDate(getYear(), getMonth() + 1, day);
-                previousMonth();
-            }
+    public int getEpochDay(int row, int column) {
+        return mFirstEpochDay + row * COLUMNS + column;
+    }
+
+    public int getFirstEpochDay() {
+        return mFirstEpochDay;
+    }
+
+    public int getLastEpochDay() {
+        return mFirstEpochDay + ROWS * COLUMNS - 1;
+    }
+
+    public boolean isWithinCurrentMonth(int row, int column) {
+        int index = row * COLUMNS + column - mOffset;
+        return index >= 0 && index < mNumberOfDaysInMonth;
+    }
+
+    /**
+     * @return -1 for days of the previous month, 0 for this month and 1 for the next month
+     */
+    public int getMonthDirection(int row, int column) {
+        int index = row * COLUMNS + column - mOffset;
+        if (index < 0) {
+            return -1;
         }
-        return r;
+        return index < mNumberOfDaysInMonth ? 0 : 1;
     }
 
+    public int getDayAt(int row, int column) {
+        int index = row * COLUMNS + column - mOffset;
+        if (index < 0) {
+            return mNumberOfDaysInPreviousMonth + index + 1;
+        }
+        if (index < mNumberOfDaysInMonth) {
+            return index + 1;
+        }
+        return index - mNumberOfDaysInMonth + 1;
+    }
 
-    //TODO bad code
-    public int compareToDate(int row, int column, LocalDate date) {
-        int year = getYear();
-        int month = getMonth();
-        int day = getDayAt(row, column);
-
-        if (!isWithinCurrentMonth(row, column)) {
-            if (row < 2) {
-                previousMonth();
-                year = getYear();
-                month = getMonth();
-                nextMonth();
-            } else {
-                nextMonth();
-                year = getYear();
-                month = getMonth();
-                previousMonth();
-            }
+    public int getYearAt(int row, int column) {
+        int direction = getMonthDirection(row, column);
+        if (direction < 0 && mMonth == 0) {
+            return mYear - 1;
+        }
+        if (direction > 0 && mMonth == 11) {
+            return mYear + 1;
         }
+        return mYear;
+    }
+
+    /**
+     * @return 0-based month
+     */
+    public int getMonthAt(int row, int column) {
+        return (mMonth + getMonthDirection(row, column) + 12) % 12;
+    }
 
-        Integer source = year * 10000 + (month + 1) * 100 + day;
-        Integer target = date.getYear() * 10000 + date.getMonthOfYear() * 100 + date.getDayOfMonth();
-        return source.compareTo(target);
+    public LocalDate getLocalDate(int row, int column) {
+        return new LocalDate(getYearAt(row, column), getMonthAt(row, column) + 1, getDayAt(row, column));
+    }
+
+    public int compareToDate(int row, int column, LocalDate date) {
+        int source = getEpochDay(row, column);
+        int target = EpochDays.of(date);
+        return source < target ? -1 : (source == target ? 0 : 1);
     }
 
 }
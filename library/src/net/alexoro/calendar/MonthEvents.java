@@ -0,0 +1,96 @@
+package net.alexoro.calendar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable events of each cell of a month grid, built once per MonthLayout, not per draw.
+ * Events of cell N are events[offsets[N]] ... events[offsets[N + 1] - 1].
+ */
+class MonthEvents {
+
+    public static final MonthEvents EMPTY = new MonthEvents(new int[0], new CalendarEvent[0]);
+
+    private final int[] mOffsets;
+    private final CalendarEvent[] mEvents;
+
+    private MonthEvents(int[] offsets, CalendarEvent[] events) {
+        mOffsets = offsets;
+        mEvents = events;
+    }
+
+    /**
+     * @param firstEpochDay epoch day of the first cell
+     * @param cellsCount count of the cells, each next cell is the next day
+     */
+    public static MonthEvents create(EventSet eventSet, int firstEpochDay, int cellsCount) {
+        if (eventSet.isEmpty()) {
+            return EMPTY;
+        }
+        int lastEpochDay = firstEpochDay + cellsCount - 1;
+        List<CalendarEvent> hits = new ArrayList<CalendarEvent>();
+        eventSet.query(firstEpochDay, lastEpochDay, hits);
+        if (hits.isEmpty()) {
+            return EMPTY;
+        }
+
+        // counting sort by cells, hits are already sorted by the first day
+        int[] offsets = new int[cellsCount + 1];
+        CalendarEvent event;
+        int from, to, total = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            event = hits.get(i);
+            from = Math.max(event.first, firstEpochDay) - firstEpochDay;
+            to = Math.min(event.last, lastEpochDay) - firstEpochDay;
+            for (int cell = from; cell <= to; cell++) {
+                offsets[cell + 1]++;
+            }
+            total += to - from + 1;
+        }
+        for (int cell = 0; cell < cellsCount; cell++) {
+            offsets[cell + 1] += offsets[cell];
+        }
+
+        CalendarEvent[] events = new CalendarEvent[total];
+        int[] positions = new int[cellsCount];
+        System.arraycopy(offsets, 0, positions, 0, cellsCount);
+        for (int i = 0; i < hits.size(); i++) {
+            event = hits.get(i);
+            from = Math.max(event.first, firstEpochDay) - firstEpochDay;
+            to = Math.min(event.last, lastEpochDay) - firstEpochDay;
+            for (int cell = from; cell <= to; cell++) {
+                events[positions[cell]++] = event;
+            }
+        }
+        return new MonthEvents(offsets, events);
+    }
+
+    public int getCount(int cell) {
+        return mOffsets.length == 0 ? 0 : mOffsets[cell + 1] - mOffsets[cell];
+    }
+
+    public void getEvents(int cell, DayEvents target) {
+        if (mOffsets.length == 0) {
+            target.set(mEvents, 0, 0);
+        } else {
+            target.set(mEvents, mOffsets[cell], mOffsets[cell + 1] - mOffsets[cell]);
+        }
+    }
+
+    /**
+     * @return true if the cell has the same events in both
+     */
+    public boolean isSameCell(int cell, MonthEvents other) {
+        int count = getCount(cell);
+        if (count != other.getCount(cell)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (mEvents[mOffsets[cell] + i] != other.mEvents[other.mOffsets[cell] + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
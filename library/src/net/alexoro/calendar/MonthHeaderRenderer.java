@@ -0,0 +1,151 @@
+package net.alexoro.calendar;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import org.joda.time.LocalDate;
+
+/**
+ * Draws the month title with navigation arrows and names of weekdays above a grid,
+ * so a calendar does not need a hierarchy of TextViews for them.
+ * It looks like nac__header. Texts are laid out when the month or the first day of week is changed,
+ * drawing itself neither formats nor measures anything.
+ */
+class MonthHeaderRenderer {
+
+    private final GridGeometry mGeometry;
+    private final CalendarTheme mTheme;
+
+    private Paint mBackgroundPaint;
+    private Paint mTitlePaint;
+    private Paint mWeekdayPaint;
+    private int mTitleHeight;
+    private int mWeekdaysHeight;
+    private int mBottomMargin;
+    private int mArrowPadding;
+    private float mTitleBaseline;
+    private float mWeekdayBaseline;
+
+    // cached layout of texts
+    private String mTitle;
+    private float mTitleWidth;
+    private int mFirstDayOfWeek;
+    private String[] mWeekdays;
+    private boolean mPreviousArrow;
+    private boolean mNextArrow;
+
+    public MonthHeaderRenderer(GridGeometry geometry, CalendarTheme theme, Resources res) {
+        mGeometry = geometry;
+        mTheme = theme;
+        DisplayMetrics dm = res.getDisplayMetrics();
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(0xff333333);
+
+        mTitlePaint = new Paint();
+        mTitlePaint.setAntiAlias(true);
+        mTitlePaint.setColor(Color.WHITE);
+        mTitlePaint.setTextSize(16 * dm.scaledDensity);
+        mTitlePaint.setTextAlign(Paint.Align.CENTER);
+        mTitlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+
+        mWeekdayPaint = new Paint();
+        mWeekdayPaint.setAntiAlias(true);
+        mWeekdayPaint.setColor(Color.WHITE);
+        mWeekdayPaint.setTextSize(8 * dm.density);
+        mWeekdayPaint.setTextAlign(Paint.Align.CENTER);
+
+        // paddings of nac__header and nac__day, baselines are from font metrics instead of guesses
+        Paint.FontMetricsInt fm = mTitlePaint.getFontMetricsInt();
+        int padding = Math.round(8 * dm.density);
+        mTitleHeight = padding + fm.descent - fm.ascent + padding;
+        mTitleBaseline = padding - fm.ascent;
+        fm = mWeekdayPaint.getFontMetricsInt();
+        padding = Math.round(4 * dm.density);
+        mWeekdaysHeight = padding + fm.descent - fm.ascent + padding;
+        mWeekdayBaseline = mTitleHeight + padding - fm.ascent;
+        mBottomMargin = Math.round(2 * dm.density);
+        mArrowPadding = Math.round(16 * dm.density);
+
+        mTitle = "";
+        mTitleWidth = 0;
+        mFirstDayOfWeek = -1;
+        mWeekdays = new String[mGeometry.getColumns()];
+        mPreviousArrow = false;
+        mNextArrow = false;
+    }
+
+    public int getHeight() {
+        return mTitleHeight + mWeekdaysHeight + mBottomMargin;
+    }
+
+    public int getTitleHeight() {
+        return mTitleHeight;
+    }
+
+    public void setMonth(LocalDate month) {
+        String title = mTheme.getMonthTitle(month.getYear(), month.getMonthOfYear());
+        if (!title.equals(mTitle)) {
+            mTitle = title;
+            mTitleWidth = mTitlePaint.measureText(title);
+        }
+    }
+
+    /**
+     * @param firstDayOfWeek in terms of java.util.Calendar
+     */
+    public void setFirstDayOfWeek(int firstDayOfWeek) {
+        if (firstDayOfWeek == mFirstDayOfWeek) {
+            return;
+        }
+        mFirstDayOfWeek = firstDayOfWeek;
+        int day = firstDayOfWeek;
+        for (int i = 0; i < mWeekdays.length; i++) {
+            mWeekdays[i] = mTheme.getShortWeekday(day);
+            day = day % 7 + 1;
+        }
+    }
+
+    public void setArrows(boolean previous, boolean next) {
+        mPreviousArrow = previous;
+        mNextArrow = next;
+    }
+
+    public void draw(Canvas canvas, int width) {
+        canvas.drawRect(0, 0, width, mTitleHeight + mWeekdaysHeight, mBackgroundPaint);
+
+        float center = width / 2f;
+        canvas.drawText(mTitle, center, mTitleBaseline, mTitlePaint);
+        if (mPreviousArrow) {
+            Drawable arrow = mTheme.getPreviousArrow();
+            int right = (int) (center - mTitleWidth / 2) - mArrowPadding;
+            drawArrow(canvas, arrow, right - arrow.getIntrinsicWidth());
+        }
+        if (mNextArrow) {
+            Drawable arrow = mTheme.getNextArrow();
+            drawArrow(canvas, arrow, (int) (center + mTitleWidth / 2) + mArrowPadding);
+        }
+
+        // the grid is centered in the view, so are the names
+        int left = (width - mGeometry.getWidth()) / 2;
+        for (int i = 0; i < mWeekdays.length; i++) {
+            canvas.drawText(
+                    mWeekdays[i],
+                    left + (mGeometry.getColumnLeft(i) + mGeometry.getColumnRight(i)) / 2f,
+                    mWeekdayBaseline,
+                    mWeekdayPaint);
+        }
+    }
+
+    protected void drawArrow(Canvas canvas, Drawable arrow, int left) {
+        // arrows are shared by all calendars of the theme, so the bounds are set right before drawing
+        int top = (mTitleHeight - arrow.getIntrinsicHeight()) / 2;
+        arrow.setBounds(left, top, left + arrow.getIntrinsicWidth(), top + arrow.getIntrinsicHeight());
+        arrow.draw(canvas);
+    }
+
+}
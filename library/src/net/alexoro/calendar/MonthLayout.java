@@ -0,0 +1,142 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Immutable layout of one month: the grid descriptor, packed cells (see DayCellDescription)
+ * and events of each cell.
+ * Pressed state is never stored here, it is a state of the view, not of the month.
+ * Instances are created by MonthLayoutEngine and can be passed between threads freely.
+ */
+class MonthLayout {
+
+    private final LocalDate mMonth;
+    private final MonthDescriptor mDescriptor;
+    private final int[] mCells;
+    private final DateSet mEnabledDates;
+    private final DateSet mSelectedDates;
+    private final EventSet mEventSet;
+    private final MonthEvents mEvents;
+
+    /**
+     * Enabled/selected dates and the event set are the ones the layout is built with, they tell if it is up to date
+     */
+    MonthLayout(LocalDate month,
+                MonthDescriptor descriptor,
+                int[] cells,
+                DateSet enabledDates,
+                DateSet selectedDates,
+                EventSet eventSet,
+                MonthEvents events) {
+        mMonth = month;
+        mDescriptor = descriptor;
+        mCells = cells;
+        mEnabledDates = enabledDates;
+        mSelectedDates = selectedDates;
+        mEventSet = eventSet;
+        mEvents = events;
+    }
+
+    public LocalDate getMonth() {
+        return mMonth;
+    }
+
+    public MonthDescriptor getDescriptor() {
+        return mDescriptor;
+    }
+
+    public boolean isMonth(LocalDate date) {
+        return date.getYear() == mMonth.getYear()
+                && date.getMonthOfYear() == mMonth.getMonthOfYear();
+    }
+
+    public int getCellsCount() {
+        return mCells.length;
+    }
+
+    public int getCell(int index) {
+        return mCells[index];
+    }
+
+    public int getCell(int row, int column) {
+        return mCells[row * mDescriptor.getColumnsCount() + column];
+    }
+
+    public DateSet getEnabledDates() {
+        return mEnabledDates;
+    }
+
+    public DateSet getSelectedDates() {
+        return mSelectedDates;
+    }
+
+    public EventSet getEventSet() {
+        return mEventSet;
+    }
+
+    public MonthEvents getEvents() {
+        return mEvents;
+    }
+
+    public int getEpochDay(int index) {
+        return mDescriptor.getFirstEpochDay() + index;
+    }
+
+    /**
+     * @return index of the cell or -1 if the day is not in the grid
+     */
+    public int indexOf(int epochDay) {
+        int index = epochDay - mDescriptor.getFirstEpochDay();
+        return index >= 0 && index < mCells.length ? index : -1;
+    }
+
+    public LocalDate getDate(int index) {
+        int cell = mCells[index];
+        return new LocalDate(
+                DayCellDescription.getYear(cell),
+                DayCellDescription.getMonth(cell) + 1,
+                DayCellDescription.getDay(cell));
+    }
+
+    /**
+     * @return this if the dates are the same, otherwise a new layout. Cells are shared if no state is changed.
+     */
+    public MonthLayout withStates(DateSet enabledDates, DateSet selectedDates) {
+        if (enabledDates == mEnabledDates && selectedDates == mSelectedDates) {
+            return this;
+        }
+        int[] cells = mCells.clone();
+        long changed = MonthCellsBuilder.updateStates(cells, mDescriptor, enabledDates, selectedDates, -1);
+        return new MonthLayout(
+                mMonth, mDescriptor, changed == 0 ? mCells : cells,
+                enabledDates, selectedDates, mEventSet, mEvents);
+    }
+
+    public MonthLayout withEvents(EventSet eventSet, MonthEvents events) {
+        return new MonthLayout(mMonth, mDescriptor, mCells, mEnabledDates, mSelectedDates, eventSet, events);
+    }
+
+    /**
+     * Both layouts must be of the same month
+     * @return bit mask of the cells which differ, bit N is cell N
+     */
+    public long getChangedCells(MonthLayout other) {
+        long r = 0;
+        if (mCells != other.mCells) {
+            for (int i = 0; i < mCells.length; i++) {
+                if (mCells[i] != other.mCells[i]) {
+                    r |= 1L << i;
+                }
+            }
+        }
+        if (mEvents != other.mEvents) {
+            for (int i = 0; i < mCells.length; i++) {
+                if (!mEvents.isSameCell(i, other.mEvents)) {
+                    r |= 1L << i;
+                }
+            }
+        }
+        return r;
+    }
+
+}
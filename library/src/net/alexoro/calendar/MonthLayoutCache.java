@@ -0,0 +1,121 @@
+package net.alexoro.calendar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of month layouts, shared by all calendars of the process (see getShared()).
+ * Only base layouts are stored: all days are enabled, nothing is selected and there are no events,
+ * so the same instance fits every calendar. Enabled/selected states and events of a calendar
+ * are applied on top of it by MonthLayoutEngine.updateLayout, the base layout itself is never changed.
+ * It is thread-safe, layouts are built both on the UI thread and in background.
+ */
+public final class MonthLayoutCache {
+
+    public static final int DEFAULT_MAX_SIZE = 36;
+
+    private static final MonthLayoutCache SHARED = new MonthLayoutCache(DEFAULT_MAX_SIZE);
+
+    private final LinkedHashMap<Long, MonthLayout> mLayouts;
+    private int mMaxSize;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    public MonthLayoutCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        mLayouts = new LinkedHashMap<Long, MonthLayout>(16, 0.75f, true);
+        mMaxSize = maxSize;
+    }
+
+    public static MonthLayoutCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * @param month 1-based, as in LocalDate
+     * @param firstDayOfWeek in terms of java.util.Calendar
+     * @return null if there is no such layout
+     */
+    synchronized MonthLayout get(int year, int month, int firstDayOfWeek, int todayEpochDay) {
+        MonthLayout r = mLayouts.get(key(year, month, firstDayOfWeek, todayEpochDay));
+        if (r != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+        return r;
+    }
+
+    synchronized void put(int year, int month, int firstDayOfWeek, int todayEpochDay, MonthLayout layout) {
+        mLayouts.put(key(year, month, firstDayOfWeek, todayEpochDay), layout);
+        trimToSize();
+    }
+
+    /**
+     * Today is a part of the key: a layout of the previous day has another cell highlighted
+     */
+    private static Long key(int year, int month, int firstDayOfWeek, int todayEpochDay) {
+        long monthKey = (year * 12L + month - 1) * 8 + firstDayOfWeek;
+        return (monthKey << 32) | (todayEpochDay & 0xffffffffL);
+    }
+
+    private void trimToSize() {
+        while (mLayouts.size() > mMaxSize) {
+            // the eldest entry is the least recently used one, as the map is in access order
+            Map.Entry<Long, MonthLayout> eldest = mLayouts.entrySet().iterator().next();
+            mLayouts.remove(eldest.getKey());
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * @param maxSize count of layouts, 0 disables the cache
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        mMaxSize = maxSize;
+        trimToSize();
+    }
+
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized int size() {
+        return mLayouts.size();
+    }
+
+    public synchronized void clear() {
+        mLayouts.clear();
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public synchronized void resetCounters() {
+        mHitCount = 0;
+        mMissCount = 0;
+        mEvictionCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MonthLayoutCache[size=" + mLayouts.size() + ", maxSize=" + mMaxSize
+                + ", hits=" + mHitCount + ", misses=" + mMissCount + ", evictions=" + mEvictionCount + "]";
+    }
+
+}
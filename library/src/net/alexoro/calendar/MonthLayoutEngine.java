@@ -0,0 +1,262 @@
+package net.alexoro.calendar;
+
+import org.joda.time.LocalDate;
+
+import java.util.Calendar;
+import java.util.Collection;
+
+/**
+ * Headless month layout engine: it has no Android dependencies, so it works on a plain JVM.
+ * It produces immutable MonthLayout instances and answers date <-> cell queries.
+ * Settings are changed from the UI thread, createLayout and the queries can be called from any thread.
+ */
+class MonthLayoutEngine {
+
+    private static final int ROWS = 6;
+    private static final int COLUMNS = 7;
+
+    private final GridGeometry mGeometry;
+    private final MonthLayoutCache mCache;
+    private volatile int mFirstDayOfWeek;
+    private volatile int mTodayEpochDay;
+    private volatile DateSet mEnabledDates;
+    private volatile DateSet mSelectedDates;
+    private volatile EventSet mEventSet;
+
+    public MonthLayoutEngine() {
+        this(MonthLayoutCache.getShared());
+    }
+
+    /**
+     * @param cache of base layouts, null to build each layout from scratch
+     */
+    public MonthLayoutEngine(MonthLayoutCache cache) {
+        mCache = cache;
+        mGeometry = new GridGeometry(ROWS, COLUMNS);
+        mFirstDayOfWeek = Calendar.getInstance().getFirstDayOfWeek();
+        mTodayEpochDay = EpochDays.of(new LocalDate());
+        mEnabledDates = null;
+        mSelectedDates = null;
+        mEventSet = EventSet.EMPTY;
+    }
+
+
+    //region Settings
+
+    /**
+     * Geometry is not thread-safe, it must be used from the UI thread only
+     */
+    public GridGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public int getRowsCount() {
+        return ROWS;
+    }
+
+    public int getColumnsCount() {
+        return COLUMNS;
+    }
+
+    /**
+     * @param firstDayOfWeek in terms of java.util.Calendar
+     */
+    public void setFirstDayOfWeek(int firstDayOfWeek) {
+        mFirstDayOfWeek = firstDayOfWeek;
+    }
+
+    public int getFirstDayOfWeek() {
+        return mFirstDayOfWeek;
+    }
+
+    public void setToday(LocalDate today) {
+        mTodayEpochDay = EpochDays.of(today);
+    }
+
+    public int getTodayEpochDay() {
+        return mTodayEpochDay;
+    }
+
+    /**
+     * @param dates null means that all days are enabled
+     */
+    public void setEnabledDates(DateSet dates) {
+        mEnabledDates = dates;
+    }
+
+    public DateSet getEnabledDates() {
+        return mEnabledDates;
+    }
+
+    /**
+     * @param dates null means that nothing is selected
+     */
+    public void setSelectedDates(DateSet dates) {
+        mSelectedDates = dates;
+    }
+
+    public DateSet getSelectedDates() {
+        return mSelectedDates;
+    }
+
+    /**
+     * The index is rebuilt, it is O(n log n)
+     * @param events null or empty to remove all events
+     */
+    public void setEvents(Collection<CalendarEvent> events) {
+        mEventSet = EventSet.of(events);
+    }
+
+    /**
+     * Incremental change of events, see EventSet. Events are compared by identity.
+     * It must be called from the UI thread only.
+     */
+    public void changeEvents(Collection<CalendarEvent> added, Collection<CalendarEvent> removed) {
+        mEventSet = mEventSet.change(added, removed);
+    }
+
+    public EventSet getEventSet() {
+        return mEventSet;
+    }
+
+    //endregion
+
+
+    //region Layouts
+
+    public MonthLayout createLayout(LocalDate month) {
+        if (mCache == null) {
+            return createLayout(month, mFirstDayOfWeek, mTodayEpochDay, mEnabledDates, mSelectedDates, mEventSet);
+        }
+
+        // the cached layout is shared by all calendars, states and events are applied on top of it
+        int firstDayOfWeek = mFirstDayOfWeek;
+        int todayEpochDay = mTodayEpochDay;
+        MonthLayout base = mCache.get(month.getYear(), month.getMonthOfYear(), firstDayOfWeek, todayEpochDay);
+        if (base == null) {
+            base = createLayout(month, firstDayOfWeek, todayEpochDay, null, null, EventSet.EMPTY);
+            mCache.put(month.getYear(), month.getMonthOfYear(), firstDayOfWeek, todayEpochDay, base);
+        }
+        return updateLayout(base);
+    }
+
+    /**
+     * The fast path for the UI thread: nothing is built, only states and events are applied to the cached layout
+     * @return null if the month is not in the cache
+     */
+    public MonthLayout getCachedLayout(LocalDate month) {
+        if (mCache == null) {
+            return null;
+        }
+        MonthLayout base = mCache.get(month.getYear(), month.getMonthOfYear(), mFirstDayOfWeek, mTodayEpochDay);
+        return base == null ? null : updateLayout(base);
+    }
+
+    public MonthLayoutCache getCache() {
+        return mCache;
+    }
+
+    private MonthLayout createLayout(LocalDate month, int firstDayOfWeek, int todayEpochDay,
+                                     DateSet enabledDates, DateSet selectedDates, EventSet eventSet) {
+        MonthDescriptor descriptor = new MonthDescriptor(
+                month.getYear(), month.getMonthOfYear() - 1, firstDayOfWeek);
+        int[] cells = MonthCellsBuilder.build(descriptor, enabledDates, selectedDates, todayEpochDay);
+        return new MonthLayout(
+                month.withDayOfMonth(1),
+                descriptor,
+                cells,
+                enabledDates,
+                selectedDates,
+                eventSet,
+                createMonthEvents(eventSet, descriptor));
+    }
+
+    /**
+     * Brings the layout up to date with the current enabled/selected dates and events.
+     * States are recalculated only if the dates are changed and events only if the visible days are touched.
+     * @return the given layout if it is up to date, otherwise a new layout
+     */
+    public MonthLayout updateLayout(MonthLayout layout) {
+        MonthLayout r = layout.withStates(mEnabledDates, mSelectedDates);
+        EventSet eventSet = mEventSet;
+        if (r.getEventSet() != eventSet) {
+            MonthDescriptor descriptor = r.getDescriptor();
+            if (eventSet.isSameAs(r.getEventSet(), descriptor.getFirstEpochDay(), descriptor.getLastEpochDay())) {
+                r = r.withEvents(eventSet, r.getEvents());
+            } else {
+                r = r.withEvents(eventSet, createMonthEvents(eventSet, descriptor));
+            }
+        }
+        return r;
+    }
+
+    protected MonthEvents createMonthEvents(EventSet eventSet, MonthDescriptor descriptor) {
+        return MonthEvents.create(eventSet, descriptor.getFirstEpochDay(), ROWS * COLUMNS);
+    }
+
+    //endregion
+
+
+    //region Queries
+
+    public boolean isDayEnabled(int epochDay) {
+        DateSet dates = mEnabledDates;
+        return dates == null || dates.contains(epochDay);
+    }
+
+    public boolean isDaySelected(int epochDay) {
+        DateSet dates = mSelectedDates;
+        return dates != null && dates.contains(epochDay);
+    }
+
+    /**
+     * Navigation is allowed only between the first and the last enabled days,
+     * so nothing is allowed if there are no enabled dates.
+     */
+    public boolean hasPreviousMonth(LocalDate month) {
+        DateSet dates = mEnabledDates;
+        return dates != null
+                && !dates.isEmpty()
+                && EpochDays.of(month.getYear(), month.getMonthOfYear(), 1) - 1 >= dates.first;
+    }
+
+    public boolean hasNextMonth(LocalDate month) {
+        DateSet dates = mEnabledDates;
+        int lastDay = EpochDays.of(
+                month.getYear(),
+                month.getMonthOfYear(),
+                EpochDays.getDaysInMonth(month.getYear(), month.getMonthOfYear()));
+        return dates != null
+                && !dates.isEmpty()
+                && lastDay + 1 <= dates.last;
+    }
+
+    /**
+     * Constant time, touches into the spacing between cells hit nothing.
+     * @param target it is filled only if the cell is hit
+     * @return false if nothing is hit
+     */
+    public boolean getCellAt(float x, float y, Cell target) {
+        return mGeometry.getCellAt(x, y, target);
+    }
+
+    /**
+     * @param target it is filled only if the date is in the grid of the layout
+     * @return false if the date is not in the grid
+     */
+    public boolean findCell(MonthLayout layout, LocalDate date, Cell target) {
+        int index = layout.indexOf(EpochDays.of(date));
+        if (index < 0) {
+            return false;
+        }
+        target.update(index / COLUMNS, index % COLUMNS);
+        return true;
+    }
+
+    public LocalDate getDate(MonthLayout layout, Cell cell) {
+        return layout.getDate(cell.row * COLUMNS + cell.column);
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,565 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.widget.Scroller;
+import org.joda.time.LocalDate;
+import org.joda.time.Months;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Continuous vertical list of months, all of them are drawn by this single view.
+ * Only visible months have layouts: they are kept in a small pool of slots, and a slot of a month
+ * scrolled out is rebound to a month scrolled in. So memory is the same for 5 months and for 50 years.
+ * Layouts come from the shared MonthLayoutCache, so binding of a slot is cheap.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public class MonthListView extends View {
+
+    static class MonthSlot {
+        /**
+         * Index of the month in the list or -1 if the slot is free
+         */
+        public int position;
+        public MonthLayout month;
+        public String title;
+    }
+
+
+    private MonthLayoutEngine mEngine;
+    private GridGeometry mGeometry;
+    private MonthRenderer mRenderer;
+    private Rect mDayCellSize;
+    private int mCellSpacing;
+    private int mMonthSpacing;
+    private CalendarTheme mTheme;
+    private MultiMonthHelper mHelper;
+
+    private LocalDate mFirstMonth;
+    private int mMonthsCount;
+    private List<MonthSlot> mSlots;
+
+    private Scroller mScroller;
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    private boolean mDragging;
+    private float mDownY;
+    private float mLastMotionY;
+
+
+    //region Construction
+
+    public MonthListView(Context context) {
+        this(context, null);
+    }
+
+    public MonthListView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MonthListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+        mEngine = new MonthLayoutEngine();
+        mGeometry = mEngine.getGeometry();
+        int cellSize = Math.round(40 * dm.density);
+        mDayCellSize = new Rect(0, 0, cellSize, cellSize);
+        mCellSpacing = Math.round(2 * dm.density);
+        mMonthSpacing = Math.round(8 * dm.density);
+        mGeometry.setUniform(mDayCellSize.width(), mDayCellSize.height(), mCellSpacing);
+        mTheme = CalendarTheme.get(context);
+        mGeometry.setMirrored(mTheme.isRtl());
+        mRenderer = new MonthRenderer(mGeometry, mTheme);
+        mRenderer.setCellSize(mDayCellSize.width(), mDayCellSize.height());
+
+        mHelper = new MultiMonthHelper(this, mEngine, 16f, 6, new MultiMonthHelper.Callback() {
+            @Override
+            public int getPositionForCoordinates(float x, float y, Cell target) {
+                return MonthListView.this.getPositionForCoordinates(x, y, target);
+            }
+
+            @Override
+            public int getGridLeft(int position) {
+                return getMonthLeft();
+            }
+
+            @Override
+            public int getGridTop(int position) {
+                // in the scrolled content, View.invalidate subtracts the scroll itself
+                return getMonthTop(position) + mHelper.getTitleHeight();
+            }
+
+            @Override
+            public MonthLayout getMonth(int position) {
+                MonthSlot slot = findSlot(position);
+                return slot == null ? null : slot.month;
+            }
+        });
+
+        mFirstMonth = new LocalDate().withDayOfMonth(1);
+        mMonthsCount = 0;
+        mSlots = new ArrayList<MonthSlot>();
+
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mScroller = new Scroller(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mDragging = false;
+    }
+
+    //endregion
+
+
+    //region Set & Get properties
+
+    /**
+     * @param firstMonth any day of the first month of the list
+     * @param lastMonth any day of the last month of the list, including
+     */
+    public void setRange(LocalDate firstMonth, LocalDate lastMonth) {
+        LocalDate first = firstMonth.withDayOfMonth(1);
+        LocalDate last = lastMonth.withDayOfMonth(1);
+        if (last.isBefore(first)) {
+            throw new IllegalArgumentException("Last month is before the first one");
+        }
+        mFirstMonth = first;
+        mMonthsCount = Months.monthsBetween(first, last).getMonths() + 1;
+        mHelper.forgetPressed();
+        releaseSlots();
+        scrollTo(0, getScrollY());
+        bindVisibleMonths();
+        invalidate();
+    }
+
+    public LocalDate getFirstMonth() {
+        return mFirstMonth;
+    }
+
+    public int getMonthsCount() {
+        return mMonthsCount;
+    }
+
+    public void scrollToMonth(LocalDate month) {
+        mScroller.forceFinished(true);
+        scrollTo(0, getPosition(month) * getMonthBlockHeight());
+    }
+
+    /**
+     * @return the month at the top of the view
+     */
+    public LocalDate getFirstVisibleMonth() {
+        return mFirstMonth.plusMonths(getScrollY() / getMonthBlockHeight());
+    }
+
+    public void setDayCellSize(int width, int height) {
+        mDayCellSize.set(0, 0, width, height);
+        mGeometry.setUniform(width, height, mCellSpacing);
+        mRenderer.setCellSize(width, height);
+        mHelper.onDayReleased();
+        // months have a new height: the scroll range and the visible months change with it
+        scrollTo(0, getScrollY());
+        bindVisibleMonths();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Days of a week go from right to left. By default it follows the locale.
+     */
+    public void setMirrored(boolean mirrored) {
+        mGeometry.setMirrored(mirrored);
+        mHelper.onDayReleased();
+        invalidate();
+    }
+
+    public boolean isMirrored() {
+        return mGeometry.isMirrored();
+    }
+
+    public int getDayCellWidth() {
+        return mDayCellSize.width();
+    }
+
+    public int getDayCellHeight() {
+        return mDayCellSize.height();
+    }
+
+    /**
+     * Cells narrower or lower than the size are drawn by flat rects, without day numbers and drawables,
+     * events are shown by a mark. E.g. for thumbnails, where the full detail is not readable anyway.
+     * @param size in px, 0 draws all cells in full detail
+     */
+    public void setCompactCellSize(int size) {
+        mRenderer.setCompactCellSize(size);
+        invalidate();
+    }
+
+    public int getCompactCellSize() {
+        return mRenderer.getCompactCellSize();
+    }
+
+    public OnDateClickListener getOnDateClickListener() {
+        return mHelper.getOnDateClickListener();
+    }
+
+    public void setOnDateClickListener(OnDateClickListener onDateClickListener) {
+        mHelper.setOnDateClickListener(onDateClickListener);
+    }
+
+    /**
+     * @param dates null means that all days are enabled
+     */
+    public void setEnabledDates(DateSet dates) {
+        mEngine.setEnabledDates(dates);
+        updateBoundMonths();
+    }
+
+    public DateSet getEnabledDates() {
+        return mEngine.getEnabledDates();
+    }
+
+    /**
+     * @param dates null means that nothing is selected
+     */
+    public void setSelectedDates(DateSet dates) {
+        mEngine.setSelectedDates(dates);
+        updateBoundMonths();
+    }
+
+    public DateSet getSelectedDates() {
+        return mEngine.getSelectedDates();
+    }
+
+    /**
+     * Replaces all events, see CalendarGridView.setEvents
+     */
+    public void setEvents(Collection<CalendarEvent> events) {
+        mEngine.setEvents(events);
+        updateBoundMonths();
+    }
+
+    /**
+     * Incremental change, only the visible months touched by the events are rebuilt
+     */
+    public void changeEvents(Collection<CalendarEvent> added, Collection<CalendarEvent> removed) {
+        mEngine.changeEvents(added, removed);
+        updateBoundMonths();
+    }
+
+    /**
+     * @param decorator null to draw no markers of events
+     */
+    public void setDayDecorator(DayDecorator decorator) {
+        mRenderer.setDayDecorator(decorator);
+        invalidate();
+    }
+
+    public DayDecorator getDayDecorator() {
+        return mRenderer.getDayDecorator();
+    }
+
+    //endregion
+
+
+    //region Slots of visible months
+
+    /**
+     * Binds free slots to the months which became visible, slots of hidden months are released first
+     */
+    protected void bindVisibleMonths() {
+        int height = getHeight();
+        if (mMonthsCount == 0 || height == 0) {
+            releaseSlots();
+            return;
+        }
+        int block = getMonthBlockHeight();
+        // the top padding is a part of the content, it is scrolled with months
+        int contentTop = getScrollY() - getPaddingTop();
+        int first = Math.max(0, contentTop / block);
+        int last = Math.min(mMonthsCount - 1, Math.max(0, contentTop + height - 1) / block);
+
+        for (MonthSlot slot : mSlots) {
+            if (slot.position != -1 && (slot.position < first || slot.position > last)) {
+                releaseSlot(slot);
+            }
+        }
+        for (int position = first; position <= last; position++) {
+            if (findSlot(position) == null) {
+                bindSlot(obtainSlot(), position);
+            }
+        }
+    }
+
+    protected void bindSlot(MonthSlot slot, int position) {
+        slot.position = position;
+        slot.month = mEngine.createLayout(mFirstMonth.plusMonths(position));
+        slot.title = mTheme.getMonthTitle(slot.month.getMonth().getYear(), slot.month.getMonth().getMonthOfYear());
+    }
+
+    protected void releaseSlot(MonthSlot slot) {
+        if (slot.position == mHelper.getPressedPosition()) {
+            mHelper.forgetPressed();
+        }
+        slot.position = -1;
+        slot.month = null;
+        slot.title = null;
+    }
+
+    protected void releaseSlots() {
+        for (MonthSlot slot : mSlots) {
+            releaseSlot(slot);
+        }
+    }
+
+    /**
+     * The pool grows only up to the count of months visible at once
+     */
+    protected MonthSlot obtainSlot() {
+        for (MonthSlot slot : mSlots) {
+            if (slot.position == -1) {
+                return slot;
+            }
+        }
+        MonthSlot r = new MonthSlot();
+        r.position = -1;
+        mSlots.add(r);
+        return r;
+    }
+
+    protected MonthSlot findSlot(int position) {
+        for (MonthSlot slot : mSlots) {
+            if (slot.position == position) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Brings the visible months up to date with the engine, months without changes are kept as is
+     */
+    protected void updateBoundMonths() {
+        for (MonthSlot slot : mSlots) {
+            if (slot.position != -1) {
+                slot.month = mEngine.updateLayout(slot.month);
+            }
+        }
+        invalidate();
+    }
+
+    //endregion
+
+
+    //region View overrides
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getPaddingLeft() + mGeometry.getWidth() + getPaddingRight();
+        int height = getPaddingTop() + mHelper.getTitleHeight() + mGeometry.getHeight() + getPaddingBottom();
+        setMeasuredDimension(
+                resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // the scroll range depends on the height
+        scrollTo(0, getScrollY());
+        bindVisibleMonths();
+    }
+
+    @Override
+    public void scrollTo(int x, int y) {
+        super.scrollTo(0, Math.max(0, Math.min(y, getMaxScrollY())));
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        bindVisibleMonths();
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(0, mScroller.getCurrY());
+            invalidate();
+        }
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return getPaddingTop()
+                + Math.max(0, mMonthsCount * getMonthBlockHeight() - mMonthSpacing)
+                + getPaddingBottom();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        // the canvas is already translated by the scroll, so months are drawn at their positions in the list
+        int left = getMonthLeft();
+        int top;
+        for (MonthSlot slot : mSlots) {
+            if (slot.position == -1) {
+                continue;
+            }
+            top = getMonthTop(slot.position);
+            mHelper.drawTitle(canvas, slot.title, left, top);
+            mRenderer.drawMonth(canvas, slot.month, left, top + mHelper.getTitleHeight(), mHelper.getPressedIndex(slot.position));
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScroller.forceFinished(true);
+        // it will be re-rendered at the next draw
+        mRenderer.recycle();
+    }
+
+    //endregion
+
+
+    //region Touch dispatcher
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        switch (event.getAction() & MultiMonthHelper.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                // a touch during the fling just stops it
+                mDragging = !mScroller.isFinished();
+                mScroller.forceFinished(true);
+                mDownY = event.getY();
+                mLastMotionY = mDownY;
+                if (!mDragging) {
+                    mHelper.onTouchDown(event.getX(), event.getY());
+                }
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float y = event.getY();
+                if (!mDragging && Math.abs(y - mDownY) > mTouchSlop) {
+                    mDragging = true;
+                    mLastMotionY = y;
+                    mHelper.onDayReleased();
+                    ViewParent parent = getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                }
+                if (mDragging) {
+                    int delta = Math.round(mLastMotionY - y);
+                    // the fraction is kept for the next move
+                    mLastMotionY -= delta;
+                    scrollTo(0, getScrollY() + delta);
+                } else {
+                    mHelper.onDayPressed(event.getX(), y);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+                    int velocity = (int) mVelocityTracker.getYVelocity();
+                    if (Math.abs(velocity) > mMinimumFlingVelocity) {
+                        fling(-velocity);
+                    }
+                } else {
+                    mHelper.onTouchUp();
+                }
+                onTouchFinished();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                onTouchFinished();
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    public void fling(int velocityY) {
+        mScroller.fling(0, getScrollY(), 0, velocityY, 0, 0, 0, getMaxScrollY());
+        invalidate();
+    }
+
+    protected void onTouchFinished() {
+        mHelper.onTouchFinished();
+        mDragging = false;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    //endregion
+
+
+    //region Utils
+
+    protected int getMonthBlockHeight() {
+        return mHelper.getTitleHeight() + mGeometry.getHeight() + mMonthSpacing;
+    }
+
+    /**
+     * @return top of the title of the month in the scrolled content
+     */
+    protected int getMonthTop(int position) {
+        return getPaddingTop() + position * getMonthBlockHeight();
+    }
+
+    protected int getMonthLeft() {
+        int content = getWidth() - getPaddingLeft() - getPaddingRight();
+        return getPaddingLeft() + Math.max(0, (content - mGeometry.getWidth()) / 2);
+    }
+
+    protected int getMaxScrollY() {
+        return Math.max(0, computeVerticalScrollRange() - getHeight());
+    }
+
+    protected int getPosition(LocalDate month) {
+        int r = Months.monthsBetween(mFirstMonth, month.withDayOfMonth(1)).getMonths();
+        return Math.max(0, Math.min(r, mMonthsCount - 1));
+    }
+
+    /**
+     * @param target reusable cell to write the hit cell into
+     * @return position of the month or -1 if no cell is hit
+     */
+    protected int getPositionForCoordinates(float x, float y, Cell target) {
+        int block = getMonthBlockHeight();
+        int contentY = (int) y + getScrollY() - getPaddingTop();
+        if (contentY < 0) {
+            return -1;
+        }
+        int position = contentY / block;
+        if (position >= mMonthsCount) {
+            return -1;
+        }
+        float gridY = contentY - position * block - mHelper.getTitleHeight();
+        return mGeometry.getCellAt(x - getMonthLeft(), gridY, target) ? position : -1;
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,440 @@
+package net.alexoro.calendar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.View;
+import org.joda.time.LocalDate;
+
+import java.util.Collection;
+
+/**
+ * Overview of several months in a table, e.g. 12 months of a year in 3 columns or a strip of 3 months.
+ * All of them are drawn by this single view in one pass: one renderer, one atlas of backgrounds
+ * and titles from the theme, so a month costs only its layout.
+ * If the width is limited, cells are shrunk to fit the columns into it.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public class MonthOverviewView extends View {
+
+    private MonthLayoutEngine mEngine;
+    private GridGeometry mGeometry;
+    private MonthRenderer mRenderer;
+    private CalendarTheme mTheme;
+    private MultiMonthHelper mHelper;
+    private Rect mDayCellSize;
+    private int mCellSpacing;
+    private int mMonthSpacing;
+    // cells fitted by onMeasure, they are applied to the geometry by onLayout; 0 width of a month is not fitted
+    private int mFittedCellWidth;
+    private int mFittedCellHeight;
+    private int mFittedMonthWidth;
+
+    private LocalDate mFirstMonth;
+    private int mColumns;
+    private MonthLayout[] mMonths;
+    private String[] mTitles;
+
+
+    //region Construction
+
+    public MonthOverviewView(Context context) {
+        this(context, null);
+    }
+
+    public MonthOverviewView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MonthOverviewView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+        mEngine = new MonthLayoutEngine();
+        mGeometry = mEngine.getGeometry();
+        int cellSize = Math.round(40 * dm.density);
+        mDayCellSize = new Rect(0, 0, cellSize, cellSize);
+        mCellSpacing = Math.max(1, Math.round(dm.density));
+        mMonthSpacing = Math.round(8 * dm.density);
+        mGeometry.setUniform(mDayCellSize.width(), mDayCellSize.height(), mCellSpacing);
+        mTheme = CalendarTheme.get(context);
+        mGeometry.setMirrored(mTheme.isRtl());
+        mRenderer = new MonthRenderer(mGeometry, mTheme);
+        mRenderer.setCellSize(mDayCellSize.width(), mDayCellSize.height());
+        mFittedCellWidth = mDayCellSize.width();
+        mFittedCellHeight = mDayCellSize.height();
+        mFittedMonthWidth = 0;
+
+        mHelper = new MultiMonthHelper(this, mEngine, 14f, 4, new MultiMonthHelper.Callback() {
+            @Override
+            public int getPositionForCoordinates(float x, float y, Cell target) {
+                return MonthOverviewView.this.getPositionForCoordinates(x, y, target);
+            }
+
+            @Override
+            public int getGridLeft(int position) {
+                return getMonthLeft(position);
+            }
+
+            @Override
+            public int getGridTop(int position) {
+                return getMonthTop(position) + mHelper.getTitleHeight();
+            }
+
+            @Override
+            public MonthLayout getMonth(int position) {
+                return mMonths[position];
+            }
+        });
+
+        mColumns = 3;
+
+        LocalDate today = new LocalDate();
+        setMonths(today.withMonthOfYear(1), 12);
+    }
+
+    //endregion
+
+
+    //region Set & Get properties
+
+    /**
+     * All months are built here, drawing and touches only read them
+     * @param firstMonth any day of the first month
+     * @param count count of months, e.g. 12 for a year
+     */
+    public void setMonths(LocalDate firstMonth, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one month must be shown");
+        }
+        mFirstMonth = firstMonth.withDayOfMonth(1);
+        mMonths = new MonthLayout[count];
+        mTitles = new String[count];
+        for (int i = 0; i < count; i++) {
+            LocalDate month = mFirstMonth.plusMonths(i);
+            mMonths[i] = mEngine.createLayout(month);
+            mTitles[i] = mTheme.getMonthTitle(month.getYear(), month.getMonthOfYear());
+        }
+        mHelper.forgetPressed();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @param year all months of the year, January is the first one
+     */
+    public void setYear(int year) {
+        setMonths(new LocalDate(year, 1, 1), 12);
+    }
+
+    public LocalDate getFirstMonth() {
+        return mFirstMonth;
+    }
+
+    public int getMonthsCount() {
+        return mMonths.length;
+    }
+
+    /**
+     * @param columns months in a row, e.g. 3 for a year of 4 rows or 3 for a strip of 3 months
+     */
+    public void setColumns(int columns) {
+        if (columns < 1) {
+            throw new IllegalArgumentException("At least one column must be shown");
+        }
+        mColumns = columns;
+        requestLayout();
+        invalidate();
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * The size is used as is only if the width is not limited, otherwise it is the maximal size
+     */
+    public void setDayCellSize(int width, int height) {
+        mDayCellSize.set(0, 0, width, height);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Days of a week go from right to left. By default it follows the locale.
+     */
+    public void setMirrored(boolean mirrored) {
+        mGeometry.setMirrored(mirrored);
+        mHelper.onDayReleased();
+        invalidate();
+    }
+
+    public boolean isMirrored() {
+        return mGeometry.isMirrored();
+    }
+
+    public int getDayCellWidth() {
+        return mDayCellSize.width();
+    }
+
+    public int getDayCellHeight() {
+        return mDayCellSize.height();
+    }
+
+    /**
+     * Cells narrower or lower than the size are drawn by flat rects, without day numbers and drawables,
+     * events are shown by a mark. E.g. for thumbnails, where the full detail is not readable anyway.
+     * @param size in px, 0 draws all cells in full detail
+     */
+    public void setCompactCellSize(int size) {
+        mRenderer.setCompactCellSize(size);
+        invalidate();
+    }
+
+    public int getCompactCellSize() {
+        return mRenderer.getCompactCellSize();
+    }
+
+    public OnDateClickListener getOnDateClickListener() {
+        return mHelper.getOnDateClickListener();
+    }
+
+    public void setOnDateClickListener(OnDateClickListener onDateClickListener) {
+        mHelper.setOnDateClickListener(onDateClickListener);
+    }
+
+    /**
+     * @param dates null means that all days are enabled
+     */
+    public void setEnabledDates(DateSet dates) {
+        mEngine.setEnabledDates(dates);
+        updateMonths();
+    }
+
+    public DateSet getEnabledDates() {
+        return mEngine.getEnabledDates();
+    }
+
+    /**
+     * @param dates null means that nothing is selected
+     */
+    public void setSelectedDates(DateSet dates) {
+        mEngine.setSelectedDates(dates);
+        updateMonths();
+    }
+
+    public DateSet getSelectedDates() {
+        return mEngine.getSelectedDates();
+    }
+
+    /**
+     * Replaces all events, see CalendarGridView.setEvents
+     */
+    public void setEvents(Collection<CalendarEvent> events) {
+        mEngine.setEvents(events);
+        updateMonths();
+    }
+
+    /**
+     * Incremental change, only the months touched by the events are rebuilt
+     */
+    public void changeEvents(Collection<CalendarEvent> added, Collection<CalendarEvent> removed) {
+        mEngine.changeEvents(added, removed);
+        updateMonths();
+    }
+
+    /**
+     * @param decorator null to draw no markers of events
+     */
+    public void setDayDecorator(DayDecorator decorator) {
+        mRenderer.setDayDecorator(decorator);
+        invalidate();
+    }
+
+    public DayDecorator getDayDecorator() {
+        return mRenderer.getDayDecorator();
+    }
+
+    /**
+     * @param position index of the month, counted from the first one
+     */
+    public LocalDate getMonth(int position) {
+        return mMonths[position].getMonth();
+    }
+
+    /**
+     * Hit testing across all months, e.g. for a long press handled outside
+     * @return the day under the point or null if no cell is hit
+     */
+    public LocalDate getDateForCoordinates(float x, float y) {
+        return mHelper.getDateForCoordinates(x, y);
+    }
+
+    //endregion
+
+
+    //region Months
+
+    /**
+     * Brings the months up to date with the engine, months without changes are kept as is
+     */
+    protected void updateMonths() {
+        for (int i = 0; i < mMonths.length; i++) {
+            mMonths[i] = mEngine.updateLayout(mMonths[i]);
+        }
+        invalidate();
+    }
+
+    /**
+     * Cells as onMeasure fitted them, the renderer keeps its atlas if the size is the same
+     */
+    protected void applyFittedCellSize() {
+        if (mFittedMonthWidth > 0) {
+            // no pixels are lost by the division, the columns fill the month exactly
+            mGeometry.setFitted(mFittedMonthWidth, mFittedCellHeight, mCellSpacing);
+        } else {
+            mGeometry.setUniform(mFittedCellWidth, mFittedCellHeight, mCellSpacing);
+        }
+        mRenderer.setCellSize(mFittedCellWidth, mFittedCellHeight);
+    }
+
+    protected int getRows() {
+        return (mMonths.length + mColumns - 1) / mColumns;
+    }
+
+    //endregion
+
+
+    //region View overrides
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // only the sizes are computed here, the geometry is changed by onLayout
+        int columns = mGeometry.getColumns();
+        int rows = mGeometry.getRows();
+        int cellWidth = mDayCellSize.width();
+        int cellHeight = mDayCellSize.height();
+        int monthWidth = 0;
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            // cells are shrunk to fit, the proportions are kept
+            int content = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
+            monthWidth = (content - mMonthSpacing * (mColumns - 1)) / mColumns;
+            int fit = (monthWidth - mCellSpacing * (columns - 1)) / columns;
+            if (fit > 0 && fit < cellWidth) {
+                cellHeight = Math.max(1, cellHeight * fit / cellWidth);
+                cellWidth = fit;
+            } else {
+                monthWidth = 0;
+            }
+        }
+        mFittedCellWidth = cellWidth;
+        mFittedCellHeight = cellHeight;
+        mFittedMonthWidth = monthWidth;
+
+        int gridWidth = monthWidth > 0 ? monthWidth : columns * cellWidth + (columns - 1) * mCellSpacing;
+        int gridHeight = rows * cellHeight + (rows - 1) * mCellSpacing;
+        int width = getPaddingLeft()
+                + mColumns * gridWidth + (mColumns - 1) * mMonthSpacing
+                + getPaddingRight();
+        int height = getPaddingTop()
+                + getRows() * (mHelper.getTitleHeight() + gridHeight + mMonthSpacing) - mMonthSpacing
+                + getPaddingBottom();
+        setMeasuredDimension(
+                resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        applyFittedCellSize();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        // one pass: the same renderer, atlas and paints for all months
+        for (int position = 0; position < mMonths.length; position++) {
+            int left = getMonthLeft(position);
+            int top = getMonthTop(position);
+            mHelper.drawTitle(canvas, mTitles[position], left, top);
+            mRenderer.drawMonth(canvas, mMonths[position], left, top + mHelper.getTitleHeight(), mHelper.getPressedIndex(position));
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // it will be re-rendered at the next draw
+        mRenderer.recycle();
+    }
+
+    //endregion
+
+
+    //region Touch dispatcher
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return mHelper.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    //endregion
+
+
+    //region Utils
+
+    protected int getMonthBlockWidth() {
+        return mGeometry.getWidth() + mMonthSpacing;
+    }
+
+    protected int getMonthBlockHeight() {
+        return mHelper.getTitleHeight() + mGeometry.getHeight() + mMonthSpacing;
+    }
+
+    /**
+     * The table is centered horizontally if the view is wider than it
+     */
+    protected int getTableLeft() {
+        int content = getWidth() - getPaddingLeft() - getPaddingRight();
+        int table = mColumns * getMonthBlockWidth() - mMonthSpacing;
+        return getPaddingLeft() + Math.max(0, (content - table) / 2);
+    }
+
+    protected int getMonthLeft(int position) {
+        return getTableLeft() + position % mColumns * getMonthBlockWidth();
+    }
+
+    protected int getMonthTop(int position) {
+        return getPaddingTop() + position / mColumns * getMonthBlockHeight();
+    }
+
+    /**
+     * Constant time: the month is found by division, then the cell by the geometry of the grid
+     * @param target reusable cell to write the hit cell into
+     * @return position of the month or -1 if no cell is hit
+     */
+    protected int getPositionForCoordinates(float x, float y, Cell target) {
+        float tableX = x - getTableLeft();
+        float tableY = y - getPaddingTop();
+        if (tableX < 0 || tableY < 0) {
+            return -1;
+        }
+        int column = (int) tableX / getMonthBlockWidth();
+        int row = (int) tableY / getMonthBlockHeight();
+        int position = row * mColumns + column;
+        if (column >= mColumns || position >= mMonths.length) {
+            return -1;
+        }
+        float gridX = tableX - column * getMonthBlockWidth();
+        float gridY = tableY - row * getMonthBlockHeight() - mHelper.getTitleHeight();
+        return mGeometry.getCellAt(gridX, gridY, target) ? position : -1;
+    }
+
+    //endregion
+
+}
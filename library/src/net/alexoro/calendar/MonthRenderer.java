@@ -0,0 +1,326 @@
+package net.alexoro.calendar;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.StateListDrawable;
+
+/**
+ * Draws month layouts: pre-rendered cell backgrounds, day labels and decorations of events.
+ * It has no state of a month, so one renderer draws any number of months of the same geometry,
+ * e.g. the current month and its neighbour during the animation, or all visible months of a list.
+ * Cells smaller than the compact size are drawn by flat rects and a mark of events only, see setCompactCellSize.
+ * It must be used from the UI thread only.
+ */
+class MonthRenderer {
+
+    public static final int DEFAULT_COMPACT_CELL_SIZE = 24;
+
+    // index is a day of month, so drawing does not box integers or format strings
+    private static final String[] DAY_LABELS = new String[32];
+    static {
+        for (int i = 1; i < DAY_LABELS.length; i++) {
+            DAY_LABELS[i] = String.valueOf(i);
+        }
+    }
+
+    /**
+     * Text of day labels of one style, measured once per text size and typeface.
+     * So drawing of a cell neither measures text nor resolves colors.
+     */
+    static class LabelMetrics {
+        public float textSize;
+        public Typeface typeface;
+        public ColorStateList textColor;
+        /**
+         * Index is a day of month
+         */
+        public float[] widths;
+        /**
+         * From the vertical center of a cell to the baseline, it centers the text between ascent and descent
+         */
+        public float baselineOffset;
+        /**
+         * Index is a states mask (DayCellDescription.STATE_*)
+         */
+        public int[] colors;
+    }
+
+    private final GridGeometry mGeometry;
+    private final CalendarTheme mTheme;
+    private DayStyle[] mDayStyles;
+    private CellBackgroundAtlas mBackgroundAtlas;
+    private int mCellWidth;
+    private int mCellHeight;
+    private DayDecorator mDayDecorator;
+    private int mCompactCellSize;
+
+    private Paint mCellBackgroundPaint;
+    private Paint mCompactPaint;
+    private Paint mCellTextPaint;
+    private float mCellTextSize;
+    private LabelMetrics[] mLabelMetrics;
+    private DayEvents mEvents;
+    private Rect mClipBounds;
+    private Rect mWeekArea;
+    private Rect mDayArea;
+
+    /**
+     * @param theme styles and backgrounds are shared with other calendars of this theme
+     */
+    public MonthRenderer(GridGeometry geometry, CalendarTheme theme) {
+        mGeometry = geometry;
+        mTheme = theme;
+        mDayStyles = theme.getDayStyles();
+        mBackgroundAtlas = null;
+        mCellWidth = 0;
+        mCellHeight = 0;
+        mDayDecorator = new DotsDayDecorator(theme.getDisplayMetrics());
+        mCompactCellSize = DEFAULT_COMPACT_CELL_SIZE;
+
+        mCellBackgroundPaint = new Paint();
+        // no anti-aliasing, compact cells are just filled rects
+        mCompactPaint = new Paint();
+        mCompactPaint.setStyle(Paint.Style.FILL);
+        mCellTextPaint = new Paint();
+        mCellTextPaint.setAntiAlias(true);
+        mCellTextPaint.setStyle(Paint.Style.FILL);
+        mCellTextSize = mCellTextPaint.getTextSize();
+        mLabelMetrics = new LabelMetrics[mDayStyles.length];
+        mEvents = new DayEvents();
+        mClipBounds = new Rect();
+        mWeekArea = new Rect();
+        mDayArea = new Rect();
+    }
+
+    /**
+     * Default look of days, from the resources of the library
+     */
+    public static DayStyle[] createDefaultStyles(Resources res) {
+        return new DayStyle[] {
+                createStyle(res, DayCellDescription.STYLE_TODAY, "Today",
+                        R.drawable.nac__bg_today, R.color.nac__today),
+                createStyle(res, DayCellDescription.STYLE_THIS_MONTH, "ThisMonth",
+                        R.drawable.nac__bg_this_month, R.color.nac__this_month),
+                createStyle(res, DayCellDescription.STYLE_PREVIOUS_MONTH, "PreviousMonth",
+                        R.drawable.nac__bg_previous_month, R.color.nac__previous_month),
+                createStyle(res, DayCellDescription.STYLE_NEXT_MONTH, "NextMonth",
+                        R.drawable.nac__bg_next_month, R.color.nac__next_month) };
+    }
+
+    private static DayStyle createStyle(Resources res, int index, String name, int drawable, int textColor) {
+        DayStyle r = new DayStyle();
+        r.index = index;
+        r.name = name;
+        r.textSize = 14f;
+        r.drawable = (StateListDrawable) res.getDrawable(drawable);
+        r.textColor = res.getColorStateList(textColor);
+        return r;
+    }
+
+    public GridGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public DayStyle[] getDayStyles() {
+        return mDayStyles;
+    }
+
+    /**
+     * Must be called when the cells of the geometry are resized
+     */
+    public void setCellSize(int width, int height) {
+        if (width != mCellWidth || height != mCellHeight) {
+            recycle();
+            mCellWidth = width;
+            mCellHeight = height;
+        }
+    }
+
+    /**
+     * Level of detail: cells narrower or lower than the size are drawn compact,
+     * a flat rect of the background color and a mark of events, without text, drawables and the decorator.
+     * @param size in px, 0 draws all cells in full detail
+     */
+    public void setCompactCellSize(int size) {
+        mCompactCellSize = size;
+    }
+
+    public int getCompactCellSize() {
+        return mCompactCellSize;
+    }
+
+    public boolean isCompact() {
+        return mCellWidth < mCompactCellSize || mCellHeight < mCompactCellSize;
+    }
+
+    /**
+     * @param decorator null to draw no events
+     */
+    public void setDayDecorator(DayDecorator decorator) {
+        mDayDecorator = decorator;
+    }
+
+    public DayDecorator getDayDecorator() {
+        return mDayDecorator;
+    }
+
+    /**
+     * Releases the shared backgrounds, they are acquired again at the next draw
+     */
+    public void recycle() {
+        if (mBackgroundAtlas != null) {
+            mTheme.releaseAtlas(mBackgroundAtlas);
+            mBackgroundAtlas = null;
+        }
+    }
+
+    /**
+     * Only cells within the clip bounds of the canvas are drawn.
+     * @param left position of the grid in the canvas
+     * @param top position of the grid in the canvas
+     * @param pressedIndex index of the pressed cell or -1, pressed state is not a part of the layout
+     */
+    public void drawMonth(Canvas canvas, MonthLayout month, int left, int top, int pressedIndex) {
+        // only damaged cells are invalidated, so the rest must be skipped
+        if (!canvas.getClipBounds(mClipBounds)) {
+            return;
+        }
+        // compact cells need no atlas at all
+        int[] swatches = isCompact() ? mTheme.getSwatches() : null;
+        if (swatches == null && mBackgroundAtlas == null) {
+            mBackgroundAtlas = mTheme.acquireAtlas(mCellWidth, mCellHeight);
+        }
+        int rows = mGeometry.getRows();
+        for (int row = 0; row < rows; row++) {
+            mWeekArea.set(
+                    left,
+                    top + mGeometry.getRowTop(row),
+                    left + mGeometry.getWidth(),
+                    top + mGeometry.getRowBottom(row));
+            if (Rect.intersects(mClipBounds, mWeekArea)) {
+                drawWeek(canvas, month, row, mWeekArea, pressedIndex, swatches);
+            }
+        }
+    }
+
+    /**
+     * @param swatches colors of compact cells or null to draw cells in full detail
+     */
+    protected void drawWeek(Canvas canvas, MonthLayout month, int row, Rect area, int pressedIndex, int[] swatches) {
+        int columns = mGeometry.getColumns();
+        int cell, index;
+        for (int column = 0; column < columns; column++) {
+            mDayArea.set(
+                    area.left + mGeometry.getColumnLeft(column),
+                    area.top,
+                    area.left + mGeometry.getColumnRight(column),
+                    area.bottom);
+            if (!Rect.intersects(mClipBounds, mDayArea)) {
+                continue;
+            }
+            index = row * columns + column;
+            cell = month.getCell(index);
+            if (index == pressedIndex) {
+                cell = DayCellDescription.setState(cell, DayCellDescription.STATE_PRESSED, true);
+            }
+            month.getEvents().getEvents(index, mEvents);
+            if (swatches != null) {
+                drawCompactDay(canvas, cell, mDayArea, mEvents, swatches);
+            } else {
+                drawDay(canvas, cell, mDayArea, mEvents);
+            }
+        }
+    }
+
+    protected void drawDay(Canvas canvas, int cell, Rect area, DayEvents events) {
+        // background is already rendered for each style and state, just blit it
+        DayStyle style = mDayStyles[DayCellDescription.getStyle(cell)];
+        int states = DayCellDescription.getStates(cell);
+        mBackgroundAtlas.draw(canvas, style, states, area, mCellBackgroundPaint);
+
+        LabelMetrics metrics = getLabelMetrics(style);
+        if (mCellTextSize != metrics.textSize) {
+            // all styles usually have the same size, so it is set once per frame at most
+            mCellTextSize = metrics.textSize;
+            mCellTextPaint.setTextSize(mCellTextSize);
+        }
+        mCellTextPaint.setColor(metrics.colors[states]);
+        int day = DayCellDescription.getDay(cell);
+        canvas.drawText(
+                DAY_LABELS[day],
+                area.centerX() - metrics.widths[day] / 2,
+                area.centerY() + metrics.baselineOffset,
+                mCellTextPaint);
+
+        if (mDayDecorator != null && !events.isEmpty()) {
+            mDayDecorator.draw(canvas, area, events);
+        }
+    }
+
+    /**
+     * Two rects at most, so a year of such cells costs less than a single month in full detail
+     */
+    protected void drawCompactDay(Canvas canvas, int cell, Rect area, DayEvents events, int[] swatches) {
+        int color = swatches[DayCellDescription.getStyle(cell) * DayCellDescription.STATES_COUNT
+                + DayCellDescription.getStates(cell)];
+        if (color >>> 24 != 0) {
+            mCompactPaint.setColor(color);
+            canvas.drawRect(area, mCompactPaint);
+        }
+
+        if (!events.isEmpty()) {
+            // a square of the first event instead of the dots
+            int size = Math.max(2, Math.min(area.width(), area.height()) / 4);
+            int left = area.centerX() - size / 2;
+            int top = area.bottom - size - Math.max(1, size / 2);
+            mCompactPaint.setColor(events.get(0).getColor());
+            canvas.drawRect(left, top, left + size, top + size, mCompactPaint);
+        }
+    }
+
+    /**
+     * Metrics are measured again only if the text size, the typeface or the colors of the style are changed
+     */
+    protected LabelMetrics getLabelMetrics(DayStyle style) {
+        LabelMetrics r = mLabelMetrics[style.index];
+        if (r != null
+                && r.textSize == style.textSize
+                && r.typeface == mCellTextPaint.getTypeface()
+                && r.textColor == style.textColor) {
+            return r;
+        }
+
+        r = new LabelMetrics();
+        r.textSize = style.textSize;
+        r.typeface = mCellTextPaint.getTypeface();
+        r.textColor = style.textColor;
+
+        mCellTextSize = style.textSize;
+        mCellTextPaint.setTextSize(mCellTextSize);
+        r.widths = new float[DAY_LABELS.length];
+        for (int day = 1; day < DAY_LABELS.length; day++) {
+            r.widths[day] = mCellTextPaint.measureText(DAY_LABELS[day]);
+        }
+        Paint.FontMetrics fm = mCellTextPaint.getFontMetrics();
+        r.baselineOffset = -(fm.ascent + fm.descent) / 2;
+
+        r.colors = new int[DayCellDescription.STATES_COUNT];
+        for (int states = 0; states < r.colors.length; states++) {
+            r.colors[states] = getTextColorForState(style.textColor, DayStyle.getStatesAsSet(states));
+        }
+
+        mLabelMetrics[style.index] = r;
+        return r;
+    }
+
+    protected int getTextColorForState(ColorStateList list, int[] states) {
+        return list.getColorForState(
+                states,
+                list.getDefaultColor());
+    }
+
+}
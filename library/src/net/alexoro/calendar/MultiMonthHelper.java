@@ -0,0 +1,242 @@
+package net.alexoro.calendar;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import org.joda.time.LocalDate;
+
+/**
+ * Common part of views which draw several months by one MonthRenderer (MonthListView, MonthOverviewView):
+ * titles of months and the pressed day. The view places the months and answers where they are,
+ * the helper keeps the pressed cell, invalidates only its area and reports clicks on enabled days.
+ */
+class MultiMonthHelper {
+
+    static final int ACTION_MASK = 255; // MotionEvent.ACTION_MASK was introduce only in API #5
+
+    interface Callback {
+        /**
+         * @param target reusable cell to write the hit cell into
+         * @return position of the month or -1 if no cell is hit
+         */
+        int getPositionForCoordinates(float x, float y, Cell target);
+
+        /**
+         * @return left of the grid in the coordinates of View.invalidate
+         */
+        int getGridLeft(int position);
+
+        /**
+         * @return top of the grid (below the title) in the coordinates of View.invalidate
+         */
+        int getGridTop(int position);
+
+        /**
+         * @return null if the month has no layout now
+         */
+        MonthLayout getMonth(int position);
+    }
+
+    private final View mView;
+    private final MonthLayoutEngine mEngine;
+    private final GridGeometry mGeometry;
+    private final Callback mCallback;
+    private final Paint mTitlePaint;
+    private final Paint mTitleBackgroundPaint;
+    private final int mTitleHeight;
+    private final int mTitleBaseline;
+    private final Rect mDamagedArea;
+
+    private long mTouchEventStartTime;
+    private int mPressedPosition;
+    private final Cell mPressedCell;
+    private final Cell mTouchCell;
+    private OnDateClickListener mOnDateClickListener;
+
+    /**
+     * @param titleTextSize in sp
+     * @param titlePadding above and below the title text, in dp
+     */
+    public MultiMonthHelper(View view, MonthLayoutEngine engine, float titleTextSize, int titlePadding, Callback callback) {
+        mView = view;
+        mEngine = engine;
+        mGeometry = engine.getGeometry();
+        mCallback = callback;
+        DisplayMetrics dm = view.getResources().getDisplayMetrics();
+
+        mTitlePaint = new Paint();
+        mTitlePaint.setAntiAlias(true);
+        mTitlePaint.setColor(Color.WHITE);
+        mTitlePaint.setTextSize(titleTextSize * dm.scaledDensity);
+        mTitlePaint.setTextAlign(Paint.Align.CENTER);
+        mTitlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mTitleBackgroundPaint = new Paint();
+        mTitleBackgroundPaint.setColor(0xff333333);
+        // the baseline is from font metrics, as in MonthHeaderRenderer
+        Paint.FontMetricsInt fm = mTitlePaint.getFontMetricsInt();
+        int padding = Math.round(titlePadding * dm.density);
+        mTitleHeight = padding + fm.descent - fm.ascent + padding;
+        mTitleBaseline = padding - fm.ascent;
+        mDamagedArea = new Rect();
+
+        mTouchEventStartTime = -1;
+        mPressedPosition = -1;
+        mPressedCell = new Cell(-1, -1);
+        mTouchCell = new Cell(-1, -1);
+        mOnDateClickListener = null;
+    }
+
+
+    //region Titles
+
+    public int getTitleHeight() {
+        return mTitleHeight;
+    }
+
+    /**
+     * @param left left of the grid
+     * @param top top of the title, the grid follows it
+     */
+    public void drawTitle(Canvas canvas, String title, int left, int top) {
+        canvas.drawRect(left, top, left + mGeometry.getWidth(), top + mTitleHeight, mTitleBackgroundPaint);
+        canvas.drawText(title, left + mGeometry.getWidth() / 2, top + mTitleBaseline, mTitlePaint);
+    }
+
+    //endregion
+
+
+    //region Pressed day
+
+    public OnDateClickListener getOnDateClickListener() {
+        return mOnDateClickListener;
+    }
+
+    public void setOnDateClickListener(OnDateClickListener onDateClickListener) {
+        mOnDateClickListener = onDateClickListener;
+    }
+
+    public int getPressedPosition() {
+        return mPressedPosition;
+    }
+
+    /**
+     * @return index of the pressed cell in the month, as MonthRenderer.drawMonth takes it, or -1
+     */
+    public int getPressedIndex(int position) {
+        return position == mPressedPosition ? mPressedCell.row * mGeometry.getColumns() + mPressedCell.column : -1;
+    }
+
+    /**
+     * @return the day under the point or null if no cell is hit
+     */
+    public LocalDate getDateForCoordinates(float x, float y) {
+        int position = mCallback.getPositionForCoordinates(x, y, mTouchCell);
+        MonthLayout month = position == -1 ? null : mCallback.getMonth(position);
+        return month == null ? null : mEngine.getDate(month, mTouchCell);
+    }
+
+    /**
+     * Press and click of days, for views without other gestures
+     * @return false if the event is not handled
+     */
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getAction() & ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                onTouchDown(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                onDayPressed(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+                onTouchUp();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                onTouchFinished();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void onTouchDown(float x, float y) {
+        mTouchEventStartTime = System.currentTimeMillis();
+        onDayPressed(x, y);
+    }
+
+    /**
+     * A click is reported if a day is still pressed and it was not a long press
+     */
+    public void onTouchUp() {
+        if (mPressedPosition != -1
+                && System.currentTimeMillis() - mTouchEventStartTime < (long) ViewConfiguration.getLongPressTimeout()) {
+            onClick(mPressedPosition, mPressedCell);
+        }
+        onTouchFinished();
+    }
+
+    public void onTouchFinished() {
+        onDayReleased();
+        mTouchEventStartTime = -1;
+    }
+
+    public void onDayPressed(float x, float y) {
+        int position = mCallback.getPositionForCoordinates(x, y, mTouchCell);
+        if (position == mPressedPosition && (position == -1
+                || mTouchCell.row == mPressedCell.row && mTouchCell.column == mPressedCell.column)) {
+            // moves inside the same cell change nothing
+            return;
+        }
+        onDayReleased();
+        if (position != -1) {
+            mPressedPosition = position;
+            mPressedCell.update(mTouchCell.row, mTouchCell.column);
+            invalidateDayCell(position, mPressedCell);
+        }
+    }
+
+    public void onDayReleased() {
+        if (mPressedPosition != -1) {
+            invalidateDayCell(mPressedPosition, mPressedCell);
+            mPressedPosition = -1;
+        }
+    }
+
+    /**
+     * The pressed month is gone, e.g. rebound to another month: nothing is invalidated
+     */
+    public void forgetPressed() {
+        mPressedPosition = -1;
+    }
+
+    protected void onClick(int position, Cell cell) {
+        MonthLayout month = mCallback.getMonth(position);
+        if (month == null) {
+            return;
+        }
+        int c = month.getCell(cell.row, cell.column);
+        if (mOnDateClickListener != null
+                && DayCellDescription.hasState(c, DayCellDescription.STATE_ENABLED)) {
+            mOnDateClickListener.onClick(mEngine.getDate(month, cell));
+        }
+    }
+
+    protected void invalidateDayCell(int position, Cell cell) {
+        int left = mCallback.getGridLeft(position);
+        int top = mCallback.getGridTop(position);
+        mDamagedArea.set(
+                left + mGeometry.getColumnLeft(cell.column),
+                top + mGeometry.getRowTop(cell.row),
+                left + mGeometry.getColumnRight(cell.column),
+                top + mGeometry.getRowBottom(cell.row));
+        mView.invalidate(mDamagedArea);
+    }
+
+    //endregion
+
+}
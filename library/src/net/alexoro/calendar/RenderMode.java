@@ -0,0 +1,10 @@
+package net.alexoro.calendar;
+
+/**
+ * SOFTWARE - the calendar is drawn into a software layer (the default).
+ * HARDWARE - no layer is forced, so the calendar is drawn with GPU when the window is hardware accelerated.
+ */
+public enum RenderMode {
+    SOFTWARE,
+    HARDWARE
+}
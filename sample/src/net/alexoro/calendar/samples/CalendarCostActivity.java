@@ -0,0 +1,99 @@
+package net.alexoro.calendar.samples;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import net.alexoro.calendar.CalendarView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of an additional calendar on the device:
+ * inflation time, measure/layout time and the heap retained by an inflated and drawn calendar.
+ * Resources are shared per theme, so only the first calendar pays for drawables and backgrounds.
+ * Calendars with the header of views and with the header drawn by the grid are compared.
+ */
+public class CalendarCostActivity extends Activity {
+
+    private static final String TAG = "CalendarCost";
+    private static final int CALENDARS = 20;
+
+    // calendars are retained, otherwise the heap measurement is meaningless
+    private List<CalendarView> mCalendars;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        TextView vResult = new TextView(this);
+        setContentView(vResult);
+        mCalendars = new ArrayList<CalendarView>();
+
+        // the first run pays for the shared resources, so both modes are measured after it
+        measure(R.layout.tests_calendar_item_views_header);
+        String result = "Header of views:\n" + measure(R.layout.tests_calendar_item_views_header)
+                + "\n\nDrawn header:\n" + measure(R.layout.tests_list_calendar_item);
+        Log.i(TAG, result);
+        vResult.setText(result);
+    }
+
+    private String measure(int layout) {
+        LayoutInflater inflater = getLayoutInflater();
+        // a parent is needed to generate layout params, calendars are not attached to it
+        LinearLayout parent = new LinearLayout(this);
+        Bitmap bitmap = Bitmap.createBitmap(400, 400, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        long firstTime = 0, firstHeap = 0;
+        long restTime = 0, restHeap = 0, layoutTime = 0;
+        for (int i = 0; i < CALENDARS; i++) {
+            long heap = getUsedHeap();
+            long start = System.nanoTime();
+            CalendarView cv = (CalendarView) inflater.inflate(layout, parent, false);
+            long time = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            cv.measure(View.MeasureSpec.UNSPECIFIED, View.MeasureSpec.UNSPECIFIED);
+            cv.layout(0, 0, cv.getMeasuredWidth(), cv.getMeasuredHeight());
+            layoutTime += System.nanoTime() - start;
+
+            cv.draw(canvas);
+            mCalendars.add(cv);
+            heap = getUsedHeap() - heap;
+
+            if (i == 0) {
+                firstTime = time;
+                firstHeap = heap;
+            } else {
+                restTime += time;
+                restHeap += heap;
+            }
+        }
+        bitmap.recycle();
+
+        return String.format(
+                "First calendar: %d us, %d KB\nEach next one: %d us, %d KB\nMeasure and layout: %d us",
+                firstTime / 1000, firstHeap / 1024,
+                restTime / 1000 / (CALENDARS - 1), restHeap / 1024 / (CALENDARS - 1),
+                layoutTime / 1000 / CALENDARS);
+    }
+
+    /**
+     * Java heap plus native heap, the last one has bitmaps before Honeycomb
+     */
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.runFinalization();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+
+}
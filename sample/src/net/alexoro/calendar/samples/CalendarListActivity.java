@@ -65,7 +65,8 @@ public class CalendarListActivity extends Activity {
             }
 
             LocalDate target = getItem(position);
-            cv.show(target);
+            // months are built in background, so fling is not blocked
+            cv.showAsync(target);
             return cv;
         }
 
@@ -0,0 +1,37 @@
+package net.alexoro.calendar.samples;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.Toast;
+import net.alexoro.calendar.DateSet;
+import net.alexoro.calendar.MonthListView;
+import net.alexoro.calendar.OnDateClickListener;
+import org.joda.time.LocalDate;
+
+/**
+ * The same infinite list as CalendarListActivity, but all months are drawn by a single view
+ */
+public class MonthListActivity extends Activity {
+
+    private MonthListView vMonths;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.tests_month_list);
+        vMonths = (MonthListView) findViewById(R.id.months);
+
+        // 50 years, only the visible months are built
+        LocalDate today = new LocalDate();
+        vMonths.setRange(today.minusYears(25), today.plusYears(25));
+        vMonths.setSelectedDates(DateSet.of(today, today.plusDays(3)));
+        vMonths.scrollToMonth(today);
+        vMonths.setOnDateClickListener(new OnDateClickListener() {
+            @Override
+            public void onClick(LocalDate date) {
+                Toast.makeText(MonthListActivity.this, date.toDate().toString(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+}
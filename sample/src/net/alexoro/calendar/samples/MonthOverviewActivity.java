@@ -0,0 +1,45 @@
+package net.alexoro.calendar.samples;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.Toast;
+import net.alexoro.calendar.DateSet;
+import net.alexoro.calendar.MonthOverviewView;
+import net.alexoro.calendar.OnDateClickListener;
+import org.joda.time.LocalDate;
+
+/**
+ * A strip of 3 months and a whole year, each of them is a single view
+ */
+public class MonthOverviewActivity extends Activity {
+
+    private MonthOverviewView vStrip;
+    private MonthOverviewView vYear;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.tests_month_overview);
+        vStrip = (MonthOverviewView) findViewById(R.id.strip);
+        vYear = (MonthOverviewView) findViewById(R.id.year);
+
+        LocalDate today = new LocalDate();
+        OnDateClickListener listener = new OnDateClickListener() {
+            @Override
+            public void onClick(LocalDate date) {
+                Toast.makeText(MonthOverviewActivity.this, date.toDate().toString(), Toast.LENGTH_SHORT).show();
+            }
+        };
+
+        vStrip.setMonths(today.minusMonths(1), 3);
+        vStrip.setColumns(3);
+        vStrip.setSelectedDates(DateSet.of(today, today.plusDays(3)));
+        vStrip.setOnDateClickListener(listener);
+
+        vYear.setYear(today.getYear());
+        vYear.setColumns(3);
+        vYear.setSelectedDates(DateSet.of(today, today.plusDays(3)));
+        vYear.setOnDateClickListener(listener);
+    }
+
+}
@@ -0,0 +1,236 @@
+package net.alexoro.calendar.samples;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import net.alexoro.calendar.CalendarView;
+import net.alexoro.calendar.MonthTransition;
+import net.alexoro.calendar.OnDateChangedListener;
+import net.alexoro.calendar.RenderMode;
+import org.joda.time.LocalDate;
+
+import java.util.Arrays;
+
+/**
+ * Compares frame times of the render modes on the device: a static month which is redrawn each frame
+ * and month transitions. A frame time is the interval between two traversals of the window
+ * (OnPreDrawListener works on all API levels, Choreographer is API 16+).
+ * The modes differ only on API 11+, below it a software canvas is used anyway.
+ */
+public class RenderModeCostActivity extends Activity {
+
+    private static final String TAG = "RenderModeCost";
+    private static final int WARMUP_FRAMES = 10;
+    private static final int STATIC_FRAMES = 120;
+    private static final int TRANSITIONS = 12;
+
+    private TextView vResult;
+    private FrameLayout vHolder;
+    private StringBuilder mResult;
+    private int mModeIndex;
+    private CalendarView mCalendar;
+    private FrameRecorder mRecorder;
+    private int mTransitions;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        vResult = new TextView(this);
+        vResult.setText("Measuring...");
+        vHolder = new FrameLayout(this);
+        root.addView(vResult);
+        root.addView(vHolder);
+        setContentView(root);
+
+        mResult = new StringBuilder();
+        mResult.append("API ").append(Build.VERSION.SDK_INT).append(", ").append(Build.MODEL);
+        mModeIndex = 0;
+        vHolder.post(new Runnable() {
+            @Override
+            public void run() {
+                startMode();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        stopRecorder();
+        super.onDestroy();
+    }
+
+    private void startMode() {
+        RenderMode[] modes = RenderMode.values();
+        if (mModeIndex == modes.length) {
+            Log.i(TAG, mResult.toString());
+            vResult.setText(mResult);
+            return;
+        }
+
+        vHolder.removeAllViews();
+        mCalendar = new CalendarView(this);
+        mCalendar.setRenderMode(modes[mModeIndex]);
+        mCalendar.setMonthTransition(MonthTransition.HORIZONTAL);
+        mCalendar.show(new LocalDate());
+        vHolder.addView(mCalendar, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        mResult.append("\n\n").append(modes[mModeIndex]);
+
+        // the calendar redraws itself each frame, nothing else changes
+        mRecorder = new FrameRecorder(STATIC_FRAMES, true) {
+            @Override
+            protected void onFinished() {
+                mResult.append("\nStatic month: ").append(formatTimes());
+                startTransitions();
+            }
+        };
+        mRecorder.start();
+    }
+
+    private void startTransitions() {
+        mTransitions = 0;
+        mCalendar.resetFrameCounters();
+        mRecorder = new FrameRecorder(STATIC_FRAMES * TRANSITIONS, false);
+        mRecorder.start();
+        mCalendar.setOnDateChangedListener(new OnDateChangedListener() {
+            @Override
+            public void onChanged(LocalDate month) {
+                mTransitions++;
+                if (mTransitions < TRANSITIONS) {
+                    nextTransition();
+                } else {
+                    mCalendar.setOnDateChangedListener(null);
+                    mResult.append("\nTransition: ").append(mRecorder.formatTimes())
+                            .append(String.format("\nAnimation frames: %d, dropped: %d",
+                                    mCalendar.getAnimationFrameCount(), mCalendar.getDroppedFrameCount()));
+                    stopRecorder();
+                    mModeIndex++;
+                    vHolder.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            startMode();
+                        }
+                    });
+                }
+            }
+        });
+        nextTransition();
+    }
+
+    private void nextTransition() {
+        // the still month between transitions is not a frame of a transition
+        mRecorder.skipInterval();
+        vHolder.post(new Runnable() {
+            @Override
+            public void run() {
+                mCalendar.nextMonth();
+            }
+        });
+    }
+
+    private void stopRecorder() {
+        if (mRecorder != null) {
+            mRecorder.stop();
+            mRecorder = null;
+        }
+    }
+
+    /**
+     * Intervals between traversals of the window, the first WARMUP_FRAMES are skipped
+     */
+    private class FrameRecorder implements ViewTreeObserver.OnPreDrawListener {
+
+        private final long[] mTimes;
+        private final boolean mRedraw;
+        private int mCount;
+        private int mSkipped;
+        private long mLastTime;
+        private boolean mFinished;
+
+        FrameRecorder(int frames, boolean redraw) {
+            mTimes = new long[frames];
+            mRedraw = redraw;
+        }
+
+        void start() {
+            mCount = 0;
+            mSkipped = 0;
+            mLastTime = 0;
+            mFinished = false;
+            vHolder.getViewTreeObserver().addOnPreDrawListener(this);
+            if (mRedraw) {
+                mCalendar.invalidate();
+            }
+        }
+
+        void stop() {
+            vHolder.getViewTreeObserver().removeOnPreDrawListener(this);
+        }
+
+        void skipInterval() {
+            mLastTime = 0;
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            long now = System.nanoTime();
+            if (mLastTime != 0 && mCount < mTimes.length) {
+                if (mSkipped < WARMUP_FRAMES) {
+                    mSkipped++;
+                } else {
+                    mTimes[mCount++] = now - mLastTime;
+                }
+            }
+            mLastTime = now;
+            if (!mRedraw || mFinished) {
+                return true;
+            }
+            if (mCount < mTimes.length) {
+                mCalendar.invalidate();
+            } else {
+                mFinished = true;
+                // the listener must not be removed while the observer dispatches
+                vHolder.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        stop();
+                        onFinished();
+                    }
+                });
+            }
+            return true;
+        }
+
+        protected void onFinished() {
+        }
+
+        String formatTimes() {
+            int count = mCount;
+            if (count == 0) {
+                return "no frames";
+            }
+            // Arrays.copyOf is API 9
+            long[] sorted = new long[count];
+            System.arraycopy(mTimes, 0, sorted, 0, count);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long time : sorted) {
+                sum += time;
+            }
+            return String.format("%d frames, mean %.1f ms, 90%% %.1f ms, max %.1f ms",
+                    count,
+                    sum / 1e6 / count,
+                    sorted[count * 9 / 10] / 1e6,
+                    sorted[count - 1] / 1e6);
+        }
+    }
+
+}